@@ -1,7 +1,9 @@
 package org.metaborg.spoofax.eclipse.meta;
 
 import org.metaborg.meta.core.project.ILanguageSpecService;
+import org.metaborg.spoofax.eclipse.meta.ant.AntExecutionContexts;
 import org.metaborg.spoofax.eclipse.meta.ant.EclipseAntRunnerService;
+import org.metaborg.spoofax.eclipse.meta.build.BuildFingerprints;
 import org.metaborg.spoofax.eclipse.meta.project.EclipseLanguageSpecService;
 import org.metaborg.spoofax.eclipse.meta.wizard.ProjectGenerator;
 import org.metaborg.spoofax.meta.core.SpoofaxMetaModule;
@@ -15,12 +17,14 @@ public class SpoofaxEclipseMetaModule extends SpoofaxMetaModule {
         super.configure();
 
         bind(ProjectGenerator.class).in(Singleton.class);
+        bind(BuildFingerprints.class).in(Singleton.class);
     }
 
     /**
      * Overrides {@link SpoofaxMetaModule#bindAnt()} for Eclipse implementation of Ant runner service.
      */
     @Override protected void bindAnt() {
+        bind(AntExecutionContexts.class).in(Singleton.class);
         bind(IAntRunnerService.class).to(EclipseAntRunnerService.class).in(Singleton.class);
     }
 
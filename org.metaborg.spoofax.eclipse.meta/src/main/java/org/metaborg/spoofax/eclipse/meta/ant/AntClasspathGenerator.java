@@ -6,8 +6,10 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.DirectoryFileFilter;
@@ -15,19 +17,97 @@ import org.apache.commons.io.filefilter.RegexFileFilter;
 import org.eclipse.core.runtime.FileLocator;
 import org.metaborg.spoofax.eclipse.meta.SpoofaxMetaPlugin;
 import org.metaborg.spoofax.eclipse.util.BundleUtils;
+import org.metaborg.spoofax.eclipse.util.Nullable;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
 
 public class AntClasspathGenerator {
     private static final ILogger logger = LoggerUtils.logger(AntClasspathGenerator.class);
 
+    private static final Object lock = new Object();
+
+    /**
+     * Incremented whenever the set of installed bundles changes.
+     */
+    private static final AtomicLong bundlesGeneration = new AtomicLong();
+    private static final BundleListener bundleListener = new BundleListener() {
+        @Override public void bundleChanged(BundleEvent event) {
+            switch(event.getType()) {
+                case BundleEvent.INSTALLED:
+                case BundleEvent.UNINSTALLED:
+                case BundleEvent.UPDATED:
+                case BundleEvent.RESOLVED:
+                case BundleEvent.UNRESOLVED:
+                    bundlesGeneration.incrementAndGet();
+                    break;
+                default:
+                    break;
+            }
+        }
+    };
+
     /**
+     * Incremented whenever the classpath is regenerated.
+     */
+    private static final AtomicLong classpathGeneration = new AtomicLong();
+
+    private static volatile @Nullable CachedClasspath cache;
+    private static @Nullable BundleContext listeningContext;
+
+
+    /**
+     * Returns classpath entries generated from installed Eclipse plugins. The classpath is cached until the set of
+     * installed bundles changes, or until the directories that development and unpacked bundles contribute entries
+     * from change.
+     * 
      * @return List of classpath entries generated from installed Eclipse plugins.
      */
     public static URL[] classpaths() {
+        final CachedClasspath cached = cache;
+        if(cached != null && cached.valid()) {
+            return cached.classpath.clone();
+        }
+
+        synchronized(lock) {
+            final BundleContext context = SpoofaxMetaPlugin.context();
+            if(listeningContext != context) {
+                context.addBundleListener(bundleListener);
+                listeningContext = context;
+                bundlesGeneration.incrementAndGet();
+            }
+            final long generation = bundlesGeneration.get();
+            final Map<File, Long> watched = new HashMap<>();
+            final URL[] classpath = generate(context, watched);
+            cache = new CachedClasspath(classpath, generation, watched);
+            classpathGeneration.incrementAndGet();
+            return classpath.clone();
+        }
+    }
+
+    /**
+     * Returns the generation of the classpath returned by {@link #classpaths()}, regenerating the classpath first if
+     * the cached classpath is no longer valid. The generation changes whenever installed bundles or the directories
+     * they contribute entries from change, such that classpaths with the same entries and generation can share loaded
+     * classes.
+     * 
+     * @return Generation of the classpath.
+     */
+    public static long generation() {
+        final CachedClasspath cached = cache;
+        if(cached == null || !cached.valid()) {
+            classpaths();
+        }
+        return classpathGeneration.get();
+    }
+
+
+    private static URL[] generate(BundleContext context, Map<File, Long> watched) {
         final Collection<URL> classpath = new LinkedList<>();
-        final Map<String, Bundle> bundles = BundleUtils.bundlesBySymbolicName(SpoofaxMetaPlugin.context());
+        final Map<String, Bundle> bundles = BundleUtils.bundlesBySymbolicName(context);
 
         final Bundle antBundle = bundles.get("org.apache.ant");
         if(antBundle == null) {
@@ -70,6 +150,9 @@ public class AntClasspathGenerator {
 
                 final File targetClasses = Paths.get(path, "target", "classes").toFile();
                 final File bin = Paths.get(path, "bin").toFile();
+                watch(watched, file);
+                watch(watched, targetClasses);
+                watch(watched, bin);
                 if(targetClasses.exists()) {
                     // A plugin under development with all its classes in the target/classes directory.
                     classpath.add(targetClasses.toURI().toURL());
@@ -86,6 +169,7 @@ public class AntClasspathGenerator {
                     FileUtils.listFiles(file, new RegexFileFilter(".+\\.jar"), DirectoryFileFilter.DIRECTORY);
                 for(File jarFile : jarFiles) {
                     classpath.add(jarFile.toURI().toURL());
+                    watch(watched, jarFile.getParentFile());
                 }
             } catch(IOException e) {
                 logger.error("Error while creating classpath for Ant build", e);
@@ -94,4 +178,44 @@ public class AntClasspathGenerator {
 
         return classpath.toArray(new URL[classpath.size()]);
     }
+
+    private static void watch(Map<File, Long> watched, File directory) {
+        // Last modified time is 0 for directories that do not exist, such that their creation is detected as well.
+        watched.put(directory, directory.lastModified());
+    }
+
+
+    private static final class CachedClasspath {
+        private final URL[] classpath;
+        private final long generation;
+        private final Map<File, Long> watched;
+
+
+        private CachedClasspath(URL[] classpath, long generation, Map<File, Long> watched) {
+            this.classpath = classpath;
+            this.generation = generation;
+            this.watched = watched;
+        }
+
+
+        /**
+         * Cheap check that only guards the cached classpath entries; modified class files in nested directories are not
+         * detected. Reuse of class loaders on the classpath is guarded by a stamp over the full content of its entries
+         * in {@link AntExecutionContexts}.
+         * 
+         * @return True if the set of bundles did not change, and none of the watched directories were created, deleted,
+         *         or had entries added or removed since the classpath was generated.
+         */
+        private boolean valid() {
+            if(generation != bundlesGeneration.get()) {
+                return false;
+            }
+            for(Map.Entry<File, Long> entry : watched.entrySet()) {
+                if(entry.getKey().lastModified() != entry.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
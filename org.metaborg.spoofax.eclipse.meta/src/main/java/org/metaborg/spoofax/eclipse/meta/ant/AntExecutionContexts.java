@@ -0,0 +1,271 @@
+package org.metaborg.spoofax.eclipse.meta.ant;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.apache.tools.ant.Project;
+import org.eclipse.core.commands.Command;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.commands.ICommandService;
+import org.metaborg.spoofax.eclipse.util.CommandStateUtils;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Pool of long-lived Ant execution contexts, such that repeated language builds reuse the class loader of Ant tooling,
+ * and the classes and JIT-compiled code it holds. A context is reused while {@link AntClasspathGenerator} returns the
+ * same classpath entries in the same generation, and the content of those entries is unchanged. A context is evicted
+ * when the classpath is regenerated, when a class file or jar file on the classpath is added, removed, or modified, or
+ * when an execution in it fails.
+ *
+ * The class loader of a context is isolated from the Spoofax plugins: its parent is the class loader of the Ant bundle,
+ * such that Ant classes are shared with the {@link Project} that executes in the context, while all other classes,
+ * including Spoofax, Stratego, and SDF tooling, are loaded from the classpath of the context. Static state of that
+ * tooling, such as caches and counters in the Stratego compiler and SDF tools, persists across executions in the same
+ * context, as it would when running those tools repeatedly in one JVM from the command line. Since not all tooling may
+ * behave correctly with such persistent state, reuse of execution contexts is opt-in: it is enabled with the 'Enable
+ * Ant execution context reuse' toggle in the Spoofax (meta) menu, and otherwise every execution uses a fresh class
+ * loader.
+ */
+public class AntExecutionContexts {
+    private static final ILogger logger = LoggerUtils.logger(AntExecutionContexts.class);
+
+    private final Command enableReuseCommand;
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    private @Nullable AntExecutionContext context;
+
+
+    @jakarta.inject.Inject public AntExecutionContexts() {
+        final ICommandService commandService = PlatformUI.getWorkbench().getService(ICommandService.class);
+        this.enableReuseCommand =
+            commandService.getCommand("org.metaborg.spoofax.eclipse.meta.command.enable.antcontextreuse");
+    }
+
+
+    /**
+     * @return True if Ant executions with a custom classpath should run in a pooled execution context, false if reuse
+     *         of execution contexts is not enabled.
+     */
+    public boolean enabled() {
+        return CommandStateUtils.toggleState(enableReuseCommand);
+    }
+
+    /**
+     * Acquires the execution context for given classpath, reusing the current context if the classpath entries, their
+     * generation, and their content are unchanged, or creating a new one otherwise. Must be released with
+     * {@link #release} after executing.
+     *
+     * @param classpath
+     *            Classpath of the Ant execution, as returned by {@link AntClasspathGenerator#classpaths()}.
+     * @return Execution context.
+     */
+    public synchronized AntExecutionContext acquire(URL[] classpath) {
+        final List<URL> entries = Arrays.asList(classpath);
+        final long generation = AntClasspathGenerator.generation();
+        final long stamp = stamp(entries);
+        if(context != null && (!context.entries.equals(entries) || context.generation != generation)) {
+            logger.debug("Ant classpath changed, recreating Ant execution context");
+            retire(context);
+        } else if(context != null && context.stamp != stamp) {
+            logger.debug("Content of Ant classpath changed, recreating Ant execution context");
+            retire(context);
+        }
+        if(context == null) {
+            context = new AntExecutionContext(entries, generation, stamp,
+                new URLClassLoader(classpath, Project.class.getClassLoader()));
+        }
+        context.warm = context.uses > 0;
+        context.uses++;
+        context.active++;
+        return context;
+    }
+
+    /**
+     * Releases given execution context after executing in it. When the execution failed, the context is evicted, such
+     * that the next execution creates a fresh context.
+     *
+     * @param released
+     *            Execution context to release.
+     * @param failed
+     *            If the execution failed.
+     */
+    public synchronized void release(AntExecutionContext released, boolean failed) {
+        released.active--;
+        if(failed && context == released) {
+            logger.debug("Evicting Ant execution context after a failure in use {}", released.uses);
+            retire(released);
+        } else if(released.retired && released.active == 0) {
+            close(released);
+        }
+    }
+
+    /**
+     * Records the execution time of given Ant target.
+     *
+     * @param target
+     *            Name of the executed target.
+     * @param millis
+     *            Execution time in milliseconds.
+     * @param warm
+     *            If the target was executed in a reused execution context.
+     */
+    public void record(String target, long millis, boolean warm) {
+        final Stats targetStats = stats.computeIfAbsent(target, k -> new Stats());
+        targetStats.add(millis, warm);
+        logger.debug("Ant target {} took {}ms in a {} execution context; {}", target, millis, warm ? "warm" : "cold",
+            targetStats);
+    }
+
+    /**
+     * @return Metrics for given Ant target, or null if no executions were recorded for that target.
+     */
+    public @Nullable Stats stats(String target) {
+        return stats.get(target);
+    }
+
+
+    /**
+     * Computes a stamp over the content of given classpath entries, from the path, size, and last modified time of jar
+     * files, and of all files nested in directories. Unlike the top-level directory check of
+     * {@link AntClasspathGenerator}, this detects recompiled classes in nested package directories, which do not change
+     * the last modified time of their ancestors.
+     */
+    private static long stamp(List<URL> entries) {
+        long stamp = 0;
+        for(URL entry : entries) {
+            final File file;
+            try {
+                file = new File(entry.toURI());
+            } catch(URISyntaxException | IllegalArgumentException e) {
+                // Not a local file, such that its content cannot be stamped.
+                stamp = stamp * 31 + entry.hashCode();
+                continue;
+            }
+            if(file.isDirectory()) {
+                stamp = stamp * 31 + file.hashCode();
+                for(File nested : FileUtils.listFiles(file, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE)) {
+                    // Commutative, such that the order in which files are listed does not matter.
+                    stamp += stamp(nested);
+                }
+            } else {
+                stamp = stamp * 31 + stamp(file);
+            }
+        }
+        return stamp;
+    }
+
+    private static long stamp(File file) {
+        return (file.hashCode() * 31L + file.length()) * 31L + file.lastModified();
+    }
+
+    private void retire(AntExecutionContext retired) {
+        retired.retired = true;
+        if(context == retired) {
+            context = null;
+        }
+        // Close the class loader only when no execution uses it any more.
+        if(retired.active == 0) {
+            close(retired);
+        }
+    }
+
+    private static void close(AntExecutionContext closed) {
+        try {
+            closed.classLoader.close();
+        } catch(IOException e) {
+            logger.warn("Cannot close class loader of Ant execution context", e);
+        }
+    }
+
+
+    /**
+     * Long-lived class loader for Ant tooling on a classpath.
+     */
+    public static class AntExecutionContext {
+        private final List<URL> entries;
+        private final long generation;
+        private final long stamp;
+        private final URLClassLoader classLoader;
+
+        private int uses = 0;
+        private int active = 0;
+        private boolean warm = false;
+        private boolean retired = false;
+
+
+        private AntExecutionContext(List<URL> entries, long generation, long stamp, URLClassLoader classLoader) {
+            this.entries = entries;
+            this.generation = generation;
+            this.stamp = stamp;
+            this.classLoader = classLoader;
+        }
+
+
+        public ClassLoader classLoader() {
+            return classLoader;
+        }
+
+        /**
+         * @return True if this context was used before it was last acquired, false if it was just created.
+         */
+        public boolean warm() {
+            return warm;
+        }
+    }
+
+    public static class Stats {
+        private long count = 0;
+        private long warmCount = 0;
+        private long totalMillis = 0;
+        private long maxMillis = 0;
+        private long lastMillis = 0;
+
+
+        private synchronized void add(long millis, boolean warm) {
+            ++count;
+            if(warm) {
+                ++warmCount;
+            }
+            totalMillis += millis;
+            maxMillis = Math.max(maxMillis, millis);
+            lastMillis = millis;
+        }
+
+        public synchronized long count() {
+            return count;
+        }
+
+        public synchronized long warmCount() {
+            return warmCount;
+        }
+
+        public synchronized long averageMillis() {
+            return count == 0 ? 0 : totalMillis / count;
+        }
+
+        public synchronized long maxMillis() {
+            return maxMillis;
+        }
+
+        public synchronized long lastMillis() {
+            return lastMillis;
+        }
+
+
+        @Override public synchronized String toString() {
+            return count + " executions (" + warmCount + " warm), average " + averageMillis() + "ms, max " + maxMillis
+                + "ms";
+        }
+    }
+}
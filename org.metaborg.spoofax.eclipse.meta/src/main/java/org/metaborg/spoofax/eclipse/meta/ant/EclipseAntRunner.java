@@ -1,36 +1,145 @@
 package org.metaborg.spoofax.eclipse.meta.ant;
 
 import java.io.File;
+import java.io.PrintStream;
 import java.net.URL;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.vfs2.FileObject;
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.BuildListener;
 import org.apache.tools.ant.BuildLogger;
+import org.apache.tools.ant.DemuxOutputStream;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.ProjectHelper;
 import org.eclipse.ant.core.AntRunner;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.resource.IResourceService;
+import org.metaborg.spoofax.eclipse.meta.ant.AntExecutionContexts.AntExecutionContext;
 import org.metaborg.spoofax.eclipse.processing.Cancel;
 import org.metaborg.spoofax.eclipse.util.Nullable;
 import org.metaborg.spoofax.meta.core.ant.IAntRunner;
 import org.metaborg.util.task.ICancel;
 
 
+/**
+ * Ant runner that executes targets with a custom classpath in a pooled execution context, such that repeated builds
+ * reuse loaded and JIT-compiled Ant tooling classes. Targets without a custom classpath, or all targets when reuse of
+ * execution contexts is not enabled, are executed with the Eclipse {@link AntRunner}, which creates a fresh class
+ * loader for every execution.
+ */
 public class EclipseAntRunner implements IAntRunner {
-    private final AntRunner runner;
+    private final AntExecutionContexts contexts;
+    private final File antFile;
+    private final File baseDir;
+    private final Map<String, String> properties;
+    private final @Nullable URL[] classpaths;
+    private final @Nullable BuildListener listener;
 
 
-    public EclipseAntRunner(IResourceService resourceService, FileObject antFile, FileObject baseDir,
-        Map<String, String> properties, @Nullable URL[] classpaths, @Nullable BuildListener listener) {
-        final File localAntFile = resourceService.localFile(antFile);
-        final File localBaseDir = resourceService.localPath(baseDir);
+    public EclipseAntRunner(IResourceService resourceService, AntExecutionContexts contexts, FileObject antFile,
+        FileObject baseDir, Map<String, String> properties, @Nullable URL[] classpaths,
+        @Nullable BuildListener listener) {
+        this.contexts = contexts;
+        this.antFile = resourceService.localFile(antFile);
+        this.baseDir = resourceService.localPath(baseDir);
+        this.properties = properties;
+        this.classpaths = classpaths;
+        this.listener = listener;
 
-        runner = new AntRunner();
-        runner.setBuildFileLocation(localAntFile.getPath());
-        properties.put("basedir", localBaseDir.getPath());
+        properties.put("basedir", this.baseDir.getPath());
+    }
+
+
+    @Override public void execute(String target, @Nullable ICancel cancel) throws MetaborgException {
+        if(classpaths == null || !contexts.enabled()) {
+            executeWithAntRunner(target, cancel);
+            return;
+        }
+
+        final AntExecutionContext context = contexts.acquire(classpaths);
+        final boolean warm = context.warm();
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            executeInContext(context, target, cancel);
+            failed = false;
+        } catch(OperationCanceledException e) {
+            // Cancellation does not leave the execution context in a broken state, keep it.
+            failed = false;
+            throw e;
+        } finally {
+            contexts.release(context, failed);
+            contexts.record(target, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), warm);
+        }
+    }
+
+
+    private void executeInContext(AntExecutionContext context, String target, @Nullable ICancel cancel)
+        throws MetaborgException {
+        final Thread thread = Thread.currentThread();
+        final ClassLoader previousClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(context.classLoader());
+        final Project project = new Project();
+        // Redirect standard output and error through the project for the duration of the target, as the Eclipse Ant
+        // runner does, such that output of tools which print to the console reaches the build listener.
+        final PrintStream previousOut = System.out;
+        final PrintStream previousErr = System.err;
+        System.setOut(new PrintStream(new DemuxOutputStream(project, false)));
+        System.setErr(new PrintStream(new DemuxOutputStream(project, true)));
+        Throwable error = null;
+        try {
+            project.setCoreLoader(context.classLoader());
+            if(listener != null) {
+                if(listener instanceof BuildLogger) {
+                    ((BuildLogger) listener).setMessageOutputLevel(Project.MSG_INFO);
+                }
+                project.addBuildListener(listener);
+            }
+            if(cancel != null) {
+                project.addBuildListener(new CancelListener(cancel));
+            }
+            project.init();
+            for(Map.Entry<String, String> property : properties.entrySet()) {
+                project.setUserProperty(property.getKey(), property.getValue());
+            }
+            project.fireBuildStarted();
+            ProjectHelper.configureProject(project, antFile);
+            project.setBaseDir(baseDir);
+            project.executeTarget(target);
+        } catch(OperationCanceledException e) {
+            error = e;
+            throw e;
+        } catch(BuildException e) {
+            error = e;
+            if(e.getCause() instanceof OperationCanceledException) {
+                throw (OperationCanceledException) e.getCause();
+            }
+            throw new MetaborgException("Ant runner failed", e);
+        } catch(RuntimeException | LinkageError e) {
+            error = e;
+            throw new MetaborgException("Ant runner failed", e);
+        } finally {
+            System.out.flush();
+            System.err.flush();
+            project.fireBuildFinished(error);
+            System.setOut(previousOut);
+            System.setErr(previousErr);
+            thread.setContextClassLoader(previousClassLoader);
+        }
+    }
+
+    private void executeWithAntRunner(String target, @Nullable ICancel cancel) throws MetaborgException {
+        final AntRunner runner = new AntRunner();
+        runner.setBuildFileLocation(antFile.getPath());
         runner.addUserProperties(properties);
-        runner.setCustomClasspath(classpaths);
+        if(classpaths != null) {
+            runner.setCustomClasspath(classpaths);
+        }
         if(listener != null) {
             final String name = listener.getClass().getName();
             if(listener instanceof BuildLogger) {
@@ -39,10 +148,6 @@ public class EclipseAntRunner implements IAntRunner {
                 runner.addBuildListener(name);
             }
         }
-    }
-
-
-    @Override public void execute(String target, @Nullable ICancel cancel) throws MetaborgException {
         runner.setExecutionTargets(new String[] { target });
 
         try {
@@ -56,4 +161,48 @@ public class EclipseAntRunner implements IAntRunner {
             throw new MetaborgException("Ant runner failed", e);
         }
     }
+
+
+    /**
+     * Stops the Ant build before the next target or task when it is cancelled.
+     */
+    private static class CancelListener implements BuildListener {
+        private final ICancel cancel;
+
+
+        CancelListener(ICancel cancel) {
+            this.cancel = cancel;
+        }
+
+
+        @Override public void targetStarted(BuildEvent event) {
+            throwIfCancelled();
+        }
+
+        @Override public void taskStarted(BuildEvent event) {
+            throwIfCancelled();
+        }
+
+        @Override public void buildStarted(BuildEvent event) {
+        }
+
+        @Override public void buildFinished(BuildEvent event) {
+        }
+
+        @Override public void targetFinished(BuildEvent event) {
+        }
+
+        @Override public void taskFinished(BuildEvent event) {
+        }
+
+        @Override public void messageLogged(BuildEvent event) {
+        }
+
+
+        private void throwIfCancelled() {
+            if(cancel.cancelled()) {
+                throw new BuildException(new OperationCanceledException());
+            }
+        }
+    }
 }
@@ -14,15 +14,18 @@ import org.metaborg.spoofax.meta.core.ant.IAntRunnerService;
 
 public class EclipseAntRunnerService implements IAntRunnerService {
     private final IResourceService resourceService;
+    private final AntExecutionContexts contexts;
 
 
-    @jakarta.inject.Inject public EclipseAntRunnerService(IResourceService resourceService) {
+    @jakarta.inject.Inject public EclipseAntRunnerService(IResourceService resourceService,
+        AntExecutionContexts contexts) {
         this.resourceService = resourceService;
+        this.contexts = contexts;
     }
 
 
     @Override public IAntRunner get(FileObject antFile, FileObject baseDir, Map<String, String> properties,
         @Nullable URL[] classpaths, @Nullable BuildListener listener) {
-        return new EclipseAntRunner(resourceService, antFile, baseDir, properties, classpaths, listener);
+        return new EclipseAntRunner(resourceService, contexts, antFile, baseDir, properties, classpaths, listener);
     }
 }
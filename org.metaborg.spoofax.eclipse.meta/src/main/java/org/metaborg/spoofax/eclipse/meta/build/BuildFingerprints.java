@@ -0,0 +1,303 @@
+package org.metaborg.spoofax.eclipse.meta.build;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.FileTypeSelector;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.QualifiedName;
+import org.metaborg.core.language.ILanguageComponent;
+import org.metaborg.core.language.ILanguageService;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.spoofax.eclipse.meta.SpoofaxMetaPlugin;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.spoofax.meta.core.config.ISpoofaxLanguageSpecConfig;
+import org.metaborg.spoofax.meta.core.project.ISpoofaxLanguageSpec;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Computes and stores fingerprints of the inputs of language specification build phases. A fingerprint is a hash over
+ * the contents of all files of the language specification that are not derived, team private, or in a top-level output
+ * directory, and the resolved language dependencies and the modification times of their compiled artifacts. Files are
+ * not filtered by extension, such that changes to any file a phase may read, such as libraries, parse tables, or
+ * templates, cause the phase to run. The fingerprint of the last successful run of each phase is stored as a persistent
+ * property of the project, such that phases whose inputs did not change can be skipped, also across restarts.
+ * Fingerprints are cached per project while the modification stamps of the inputs do not change, such that the phases
+ * of a single build share one fingerprint computation.
+ */
+public class BuildFingerprints {
+    private static final ILogger logger = LoggerUtils.logger(BuildFingerprints.class);
+
+    /**
+     * Names of top-level directories that only contain build output.
+     */
+    private static final Set<String> outputDirectories =
+        new HashSet<>(Arrays.asList("target", "bin", "src-gen", ".cache"));
+
+    /**
+     * Location of compiled artifacts, relative to the location of a language specification or component.
+     */
+    private static final String artifactsDirectory = "target/metaborg";
+
+    /**
+     * Directories that must contain output of a phase for the phase to be skipped, by phase.
+     */
+    private static final Map<String, List<String>> phaseOutputs = new HashMap<>();
+
+    static {
+        phaseOutputs.put("generatesources", Arrays.asList("src-gen"));
+        phaseOutputs.put("prejava", Arrays.asList("src-gen", artifactsDirectory));
+        phaseOutputs.put("postjava", Arrays.asList(artifactsDirectory));
+    }
+
+    private final ILanguageService languageService;
+
+    private final Map<IProject, Memo> memos = new ConcurrentHashMap<>();
+
+
+    @jakarta.inject.Inject public BuildFingerprints(ILanguageService languageService) {
+        this.languageService = languageService;
+    }
+
+
+    /**
+     * Computes the fingerprint of the inputs of given language specification.
+     *
+     * @param project
+     *            Eclipse project of the language specification.
+     * @param languageSpec
+     *            Language specification to compute the fingerprint for.
+     * @return Fingerprint, or null if it cannot be computed.
+     */
+    public @Nullable String compute(IProject project, ISpoofaxLanguageSpec languageSpec) {
+        try {
+            final Collection<IFile> inputs = inputs(project);
+
+            final ISpoofaxLanguageSpecConfig config = languageSpec.config();
+            final List<String> dependencies = new ArrayList<>();
+            for(LanguageIdentifier identifier : config.compileDeps()) {
+                dependencies.add("compile:" + resolved(identifier));
+            }
+            for(LanguageIdentifier identifier : config.sourceDeps()) {
+                dependencies.add("source:" + resolved(identifier));
+            }
+            for(LanguageIdentifier identifier : config.javaDeps()) {
+                dependencies.add("java:" + resolved(identifier));
+            }
+
+            // Reuse the fingerprint computed by an earlier phase if no input was modified since.
+            final StringBuilder key = new StringBuilder();
+            for(IFile file : inputs) {
+                key.append(file.getProjectRelativePath().toPortableString()).append(':')
+                    .append(file.getModificationStamp()).append('\n');
+            }
+            for(String dependency : dependencies) {
+                key.append(dependency).append('\n');
+            }
+            final Memo memo = memos.get(project);
+            if(memo != null && memo.key.equals(key.toString())) {
+                return memo.fingerprint;
+            }
+
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for(IFile file : inputs) {
+                update(digest, file.getProjectRelativePath().toPortableString());
+                final MessageDigest fileDigest = MessageDigest.getInstance("SHA-256");
+                try(final InputStream stream = file.getContents(true)) {
+                    final byte[] buffer = new byte[8192];
+                    int read;
+                    while((read = stream.read(buffer)) != -1) {
+                        fileDigest.update(buffer, 0, read);
+                    }
+                }
+                digest.update(fileDigest.digest());
+            }
+            for(String dependency : dependencies) {
+                update(digest, dependency);
+            }
+            final String fingerprint = hex(digest.digest());
+            memos.put(project, new Memo(key.toString(), fingerprint));
+            return fingerprint;
+        } catch(CoreException | IOException | NoSuchAlgorithmException e) {
+            logger.warn("Cannot compute build fingerprint of {}; phases will not be skipped", e, languageSpec);
+            return null;
+        }
+    }
+
+    /**
+     * Checks if the outputs of given phase exist, such that the phase can be skipped. Outputs are checked in the file
+     * system, since they may have been deleted outside of the workspace.
+     *
+     * @return True if all output directories of given phase exist and are not empty, false otherwise or if the outputs
+     *         of the phase are not known.
+     */
+    public boolean outputsExist(IProject project, String phase) {
+        final List<String> outputs = phaseOutputs.get(phase);
+        if(outputs == null) {
+            return false;
+        }
+        for(String output : outputs) {
+            final IPath location = project.getFolder(output).getLocation();
+            if(location == null) {
+                return false;
+            }
+            final String[] children = location.toFile().list();
+            if(children == null || children.length == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Fingerprint of the last successful run of given phase, or null if there is none.
+     */
+    public @Nullable String get(IProject project, String phase) {
+        try {
+            return project.getPersistentProperty(key(phase));
+        } catch(CoreException e) {
+            logger.warn("Cannot get build fingerprint of phase {} in {}", e, phase, project);
+            return null;
+        }
+    }
+
+    /**
+     * Sets the fingerprint of the last successful run of given phase, or removes it when given fingerprint is null.
+     */
+    public void set(IProject project, String phase, @Nullable String fingerprint) {
+        try {
+            project.setPersistentProperty(key(phase), fingerprint);
+        } catch(CoreException e) {
+            logger.warn("Cannot set build fingerprint of phase {} in {}", e, phase, project);
+        }
+    }
+
+    /**
+     * Removes the fingerprints of all phases, such that all phases run on the next build.
+     */
+    public void clear(IProject project) {
+        memos.remove(project);
+        try {
+            for(QualifiedName key : project.getPersistentProperties().keySet()) {
+                if(key.getQualifier().equals(SpoofaxMetaPlugin.id) && key.getLocalName().startsWith("fingerprint.")) {
+                    project.setPersistentProperty(key, null);
+                }
+            }
+        } catch(CoreException e) {
+            logger.warn("Cannot clear build fingerprints of {}", e, project);
+        }
+    }
+
+
+    private Collection<IFile> inputs(IProject project) throws CoreException {
+        final List<IFile> files = new ArrayList<>();
+        project.accept(new IResourceProxyVisitor() {
+            @Override public boolean visit(IResourceProxy proxy) {
+                if(proxy.isDerived() || proxy.isTeamPrivateMember()) {
+                    return false;
+                }
+                switch(proxy.getType()) {
+                    case IResource.FILE:
+                        files.add((IFile) proxy.requestResource());
+                        return false;
+                    case IResource.FOLDER:
+                        final IPath path = proxy.requestFullPath();
+                        return !(path.segmentCount() == 2 && outputDirectories.contains(proxy.getName()));
+                    default:
+                        return true;
+                }
+            }
+        }, IResource.NONE);
+        Collections.sort(files, (a, b) -> a.getFullPath().toPortableString().compareTo(b.getFullPath()
+            .toPortableString()));
+        return files;
+    }
+
+    private String resolved(LanguageIdentifier identifier) throws IOException, NoSuchAlgorithmException {
+        final ILanguageComponent component = languageService.getComponent(identifier);
+        if(component == null) {
+            return identifier.toString();
+        }
+        final FileObject location = component.location();
+        if(location == null) {
+            return component.id().toString();
+        }
+        return component.id() + "@" + location.getName().getURI() + "#" + artifactsStamp(location);
+    }
+
+    /**
+     * @return Digest of the names, sizes, and modification times of the compiled artifacts of the language component
+     *         at given location, such that rebuilding or replacing a dependency changes the fingerprint.
+     */
+    private static String artifactsStamp(FileObject location) throws IOException, NoSuchAlgorithmException {
+        final FileObject directory = location.resolveFile(artifactsDirectory);
+        if(!directory.exists()) {
+            return "";
+        }
+        final FileObject[] files = directory.findFiles(new FileTypeSelector(FileType.FILE));
+        if(files == null) {
+            return "";
+        }
+        Arrays.sort(files, Comparator.comparing(file -> file.getName().getURI()));
+        final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for(FileObject file : files) {
+            final FileContent content = file.getContent();
+            update(digest, directory.getName().getRelativeName(file.getName()) + ":" + content.getSize() + ":"
+                + content.getLastModifiedTime());
+        }
+        return hex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static String hex(byte[] bytes) {
+        final StringBuilder sb = new StringBuilder();
+        for(byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static QualifiedName key(String phase) {
+        return new QualifiedName(SpoofaxMetaPlugin.id, "fingerprint." + phase);
+    }
+
+
+    private static final class Memo {
+        private final String key;
+        private final String fingerprint;
+
+
+        private Memo(String key, String fingerprint) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
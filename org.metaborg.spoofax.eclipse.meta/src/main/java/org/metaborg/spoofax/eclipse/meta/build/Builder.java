@@ -1,9 +1,12 @@
 package org.metaborg.spoofax.eclipse.meta.build;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Map;
 
 import org.apache.commons.vfs2.FileObject;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -11,7 +14,10 @@ import org.eclipse.core.runtime.OperationCanceledException;
 import org.metaborg.core.config.ConfigException;
 import org.metaborg.core.project.IProject;
 import org.metaborg.core.project.IProjectService;
+import org.metaborg.spoofax.eclipse.meta.SpoofaxMetaPlugin;
 import org.metaborg.spoofax.eclipse.resource.IEclipseResourceService;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.spoofax.eclipse.util.RefreshUtils;
 import org.metaborg.spoofax.meta.core.build.LanguageSpecBuildInput;
 import org.metaborg.spoofax.meta.core.project.ISpoofaxLanguageSpec;
 import org.metaborg.spoofax.meta.core.project.ISpoofaxLanguageSpecService;
@@ -25,12 +31,16 @@ public abstract class Builder extends IncrementalProjectBuilder {
     private final IProjectService projectService;
     private final ISpoofaxLanguageSpecService languageSpecService;
 
+    private final BuildFingerprints fingerprints;
+
 
     public Builder(IEclipseResourceService resourceService, IProjectService projectService,
         ISpoofaxLanguageSpecService languageSpecService) {
         this.resourceService = resourceService;
         this.projectService = projectService;
         this.languageSpecService = languageSpecService;
+
+        this.fingerprints = SpoofaxMetaPlugin.injector().getInstance(BuildFingerprints.class);
     }
 
 
@@ -49,8 +59,23 @@ public abstract class Builder extends IncrementalProjectBuilder {
                 return null;
             }
 
+            // Skip phases whose inputs did not change since their last successful run, and whose outputs still exist.
+            final org.eclipse.core.resources.IProject eclipseProject = getProject();
+            final String phase = phase();
+            final String fingerprint = fingerprints.compute(eclipseProject, languageSpec);
+            if(fingerprint != null && fingerprint.equals(fingerprints.get(eclipseProject, phase))
+                && fingerprints.outputsExist(eclipseProject, phase)) {
+                logger.info("Skipping {} language project {}; inputs did not change since the last build",
+                    description(), languageSpec);
+                return null;
+            }
+            fingerprints.set(eclipseProject, phase, null);
+
             try {
                 build(languageSpec, monitor);
+                if(!monitor.isCanceled()) {
+                    fingerprints.set(eclipseProject, phase, fingerprint);
+                }
             } catch(OperationCanceledException e) {
                 // Ignore
             } catch(CoreException | IOException e) {
@@ -92,6 +117,7 @@ public abstract class Builder extends IncrementalProjectBuilder {
         } finally {
             // Always forget last build state to force a full build next time.
             forgetLastBuiltState();
+            fingerprints.clear(getProject());
         }
     }
 
@@ -99,6 +125,24 @@ public abstract class Builder extends IncrementalProjectBuilder {
         return new LanguageSpecBuildInput(languageSpec);
     }
 
+    /**
+     * Refreshes the resources written by a build phase if they are known, or the entire project otherwise.
+     */
+    protected void refresh(@Nullable Iterable<FileObject> written, IProgressMonitor monitor) throws CoreException {
+        if(written == null) {
+            getProject().refreshLocal(IResource.DEPTH_INFINITE, monitor);
+            return;
+        }
+        final Collection<IResource> resources = new ArrayList<>();
+        for(FileObject resource : written) {
+            final IResource eclipseResource = resourceService.unresolve(resource);
+            if(eclipseResource != null) {
+                resources.add(eclipseResource);
+            }
+        }
+        RefreshUtils.refresh(resources, monitor);
+    }
+
 
     private ISpoofaxLanguageSpec languageSpec() throws ConfigException {
         final org.eclipse.core.resources.IProject eclipseProject = getProject();
@@ -108,6 +152,11 @@ public abstract class Builder extends IncrementalProjectBuilder {
         return languageSpec;
     }
 
+    private String phase() {
+        final String name = getCommand().getBuilderName();
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
 
     protected abstract void build(ISpoofaxLanguageSpec languageSpec, IProgressMonitor monitor)
         throws CoreException, IOException;
@@ -2,7 +2,6 @@ package org.metaborg.spoofax.eclipse.meta.build;
 
 import java.io.IOException;
 
-import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
@@ -61,8 +60,8 @@ public class CompileBuilder extends Builder {
                         logger.error("BUILD FAILED");
                     }
                 } finally {
-                    // Refresh project to force resource updates for files generated by the build.
-                    getProject().refreshLocal(IResource.DEPTH_INFINITE, workspaceMonitor);
+                    // Refresh project to force resource updates, compilation does not report written files.
+                    refresh(null, workspaceMonitor);
                 }
             }
         };
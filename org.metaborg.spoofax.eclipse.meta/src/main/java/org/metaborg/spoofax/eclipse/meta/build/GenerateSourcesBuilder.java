@@ -2,7 +2,6 @@ package org.metaborg.spoofax.eclipse.meta.build;
 
 import java.io.IOException;
 
-import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
@@ -45,10 +44,11 @@ public class GenerateSourcesBuilder extends Builder {
 
         final IWorkspaceRunnable runnable = new IWorkspaceRunnable() {
             @Override public void run(IProgressMonitor workspaceMonitor) throws CoreException {
+                final CollectionFileAccess access = new CollectionFileAccess();
                 try {
                     logger.info("Generating sources for language project {}", languageSpec);
                     builder.initialize(input);
-                    builder.generateSources(input, new CollectionFileAccess());
+                    builder.generateSources(input, access);
                 } catch(MetaborgException | IOException e) {
                     workspaceMonitor.setCanceled(true);
                     monitor.setCanceled(true);
@@ -63,8 +63,8 @@ public class GenerateSourcesBuilder extends Builder {
                         logger.error("GENERATION FAILED");
                     }
                 } finally {
-                    // Refresh project to force resource updates for files generated by the build.
-                    getProject().refreshLocal(IResource.DEPTH_INFINITE, workspaceMonitor);
+                    // Refresh files written by the build to force resource updates for generated files.
+                    refresh(access.writes(), workspaceMonitor);
                 }
             }
         };
@@ -96,8 +96,8 @@ public class GenerateSourcesBuilder extends Builder {
                         logger.error("CLEAN FAILED");
                     }
                 } finally {
-                    // Refresh project to force resource updates for files generated by the build.
-                    getProject().refreshLocal(IResource.DEPTH_INFINITE, workspaceMonitor);
+                    // Refresh project to force resource updates, cleaning does not report deleted files.
+                    refresh(null, workspaceMonitor);
                 }
             }
         };
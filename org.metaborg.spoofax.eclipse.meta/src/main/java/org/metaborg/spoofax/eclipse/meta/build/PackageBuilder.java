@@ -2,7 +2,6 @@ package org.metaborg.spoofax.eclipse.meta.build;
 
 import java.io.IOException;
 
-import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
@@ -128,8 +127,9 @@ public class PackageBuilder extends Builder {
             return;
         }
 
-        // Refresh in between to sync Eclipse file system with the local file system.
-        getProject().refreshLocal(IResource.DEPTH_INFINITE, monitor);
+        // Refresh in between to sync Eclipse file system with the local file system. Packaging does not report written
+        // files, so the entire project is refreshed.
+        refresh(null, monitor);
         final ArchiveRunnable archiveRunnable = new ArchiveRunnable(input, builder, monitor);
         ResourcesPlugin.getWorkspace().run(archiveRunnable, getProject(), IWorkspace.AVOID_UPDATE, monitor);
 
@@ -139,7 +139,7 @@ public class PackageBuilder extends Builder {
         }
 
         // Refresh again to sync file systems.
-        getProject().refreshLocal(IResource.DEPTH_INFINITE, monitor);
+        refresh(null, monitor);
 
         logger.info("Reloading language project {}", languageSpec);
         discoverer.loadJob(languageSpec.location(), false).schedule();
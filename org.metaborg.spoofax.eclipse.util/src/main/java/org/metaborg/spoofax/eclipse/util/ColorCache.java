@@ -0,0 +1,124 @@
+package org.metaborg.spoofax.eclipse.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Thread-safe cache of Eclipse colors, keyed by RGB value and whether the color is for a dark theme. Returns the same
+ * {@link Color} instance for identical colors on the same display, instead of allocating a new color for every style
+ * range.
+ *
+ * Colors are never disposed while they may still be in use by text presentations. Invalidating the cache (for example
+ * when the theme changes) retires the cached colors, which are disposed together with all other colors when
+ * {@link #dispose()} is called on plugin shutdown.
+ */
+public class ColorCache {
+    private final ConcurrentMap<Integer, Color> colors = new ConcurrentHashMap<>();
+    private final Collection<Color> retired = new ArrayList<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+
+    /**
+     * Gets the cached color for given RGB value, creating it if it does not exist yet.
+     *
+     * @param red
+     *            Red component of the color, between 0 and 255.
+     * @param green
+     *            Green component of the color, between 0 and 255.
+     * @param blue
+     *            Blue component of the color, between 0 and 255.
+     * @param dark
+     *            Whether the color is used in a dark theme.
+     * @param display
+     *            Display to create the color on.
+     * @return Eclipse color.
+     */
+    public Color get(int red, int green, int blue, boolean dark, Display display) {
+        final Integer key = (dark ? 1 << 24 : 0) | (red & 0xFF) << 16 | (green & 0xFF) << 8 | (blue & 0xFF);
+        final Color cached = colors.get(key);
+        if(cached != null && cached.getDevice() == display) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        if(cached != null) {
+            // Color was created for another display, do not cache colors for multiple displays.
+            return new Color(display, red, green, blue);
+        }
+        final Color color = new Color(display, red, green, blue);
+        final Color existing = colors.putIfAbsent(key, color);
+        if(existing != null) {
+            // Another thread created the same color concurrently, use that one instead.
+            color.dispose();
+            return existing;
+        }
+        return color;
+    }
+
+    /**
+     * Retires all cached colors, such that new colors are created on the next request. Retired colors may still be in
+     * use, and are only disposed by {@link #dispose()}.
+     */
+    public void invalidate() {
+        synchronized(retired) {
+            for(Integer key : colors.keySet()) {
+                final Color color = colors.remove(key);
+                if(color != null) {
+                    retired.add(color);
+                }
+            }
+        }
+    }
+
+    /**
+     * Disposes all cached and retired colors. Must only be called when none of the colors are in use any more, for
+     * example when the plugin is stopped.
+     */
+    public void dispose() {
+        final Collection<Color> toDispose = new ArrayList<>(colors.values());
+        colors.clear();
+        synchronized(retired) {
+            toDispose.addAll(retired);
+            retired.clear();
+        }
+        for(Color color : toDispose) {
+            if(!color.isDisposed()) {
+                color.dispose();
+            }
+        }
+    }
+
+
+    /**
+     * @return Number of requests that returned a cached color.
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of requests that created a new color.
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Number of colors that are currently cached.
+     */
+    public int size() {
+        return colors.size();
+    }
+
+
+    @Override public String toString() {
+        return "ColorCache[size = " + size() + ", hits = " + hits() + ", misses = " + misses() + "]";
+    }
+}
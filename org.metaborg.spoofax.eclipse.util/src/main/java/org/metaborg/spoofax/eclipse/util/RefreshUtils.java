@@ -0,0 +1,86 @@
+package org.metaborg.spoofax.eclipse.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+public final class RefreshUtils {
+    /**
+     * Refreshes resources that were written outside of the workspace, by refreshing the direct children of their parent
+     * folders. Parent folders that are not in the workspace yet are discovered by refreshing the topmost missing folder
+     * entirely. Resources directly in a project are refreshed individually, since refreshing a project requires a rule
+     * on the workspace root.
+     *
+     * @param resources
+     *            Written, created, or deleted resources.
+     * @param monitor
+     *            Progress monitor, or null.
+     * @throws CoreException
+     *             When refreshing fails.
+     */
+    public static void refresh(Iterable<IResource> resources, @Nullable IProgressMonitor monitor)
+        throws CoreException {
+        final Map<IResource, Integer> targets = new LinkedHashMap<>();
+        for(IResource resource : resources) {
+            final IContainer parent = resource.getParent();
+            if(!(parent instanceof IFolder)) {
+                addTarget(targets, resource, IResource.DEPTH_ZERO);
+                continue;
+            }
+            IContainer folder = parent;
+            while(!folder.exists() && folder.getParent() instanceof IFolder && !folder.getParent().exists()) {
+                folder = folder.getParent();
+            }
+            addTarget(targets, folder, folder.exists() ? IResource.DEPTH_ONE : IResource.DEPTH_INFINITE);
+        }
+        for(Map.Entry<IResource, Integer> entry : targets.entrySet()) {
+            entry.getKey().refreshLocal(entry.getValue(), monitor);
+        }
+    }
+
+    /**
+     * Refreshes all resources in given project. Refreshes the children of the project instead of the project itself,
+     * since refreshing a project requires a rule on the workspace root, which conflicts with builds that only lock the
+     * project being built. New files and directories in the project are discovered as well.
+     *
+     * @param project
+     *            Project to refresh.
+     * @param monitor
+     *            Progress monitor, or null.
+     * @throws CoreException
+     *             When refreshing fails.
+     */
+    public static void refreshProject(IProject project, @Nullable IProgressMonitor monitor) throws CoreException {
+        final Set<IResource> children = new LinkedHashSet<>(Arrays.asList(project.members()));
+        final IPath location = project.getLocation();
+        final String[] names = location != null ? location.toFile().list() : null;
+        if(names != null) {
+            // Also refresh handles of new files and directories, which are not members yet.
+            for(String name : names) {
+                final boolean directory = location.append(name).toFile().isDirectory();
+                children.add(directory ? project.getFolder(name) : project.getFile(name));
+            }
+        }
+        for(IResource child : children) {
+            child.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+        }
+    }
+
+
+    private static void addTarget(Map<IResource, Integer> targets, IResource resource, int depth) {
+        final Integer existing = targets.get(resource);
+        if(existing == null || existing < depth) {
+            targets.put(resource, depth);
+        }
+    }
+}
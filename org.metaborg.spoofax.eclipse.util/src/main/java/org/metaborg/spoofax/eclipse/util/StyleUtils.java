@@ -27,11 +27,29 @@ public final class StyleUtils {
     /**
      * Stores whether the current theme is a dark theme or not.
      */
-    private static boolean isDarkTheme = false;
+    private static volatile boolean isDarkTheme = false;
+
+    /**
+     * Shared cache of colors created for text styles.
+     */
+    private static final ColorCache colorCache = new ColorCache();
 
     static {
+        // Workbench may not be running when this class is first loaded to dispose colors during shutdown.
+        if(PlatformUI.isWorkbenchRunning()) {
+            registerThemeListener();
+        }
+    }
+
+    private static void registerThemeListener() {
         calculateDarkTheme();
-        PlatformUI.getWorkbench().getThemeManager().addPropertyChangeListener(e -> calculateDarkTheme());
+        PlatformUI.getWorkbench().getThemeManager().addPropertyChangeListener(e -> {
+            final boolean wasDarkTheme = isDarkTheme;
+            calculateDarkTheme();
+            if(wasDarkTheme != isDarkTheme) {
+                colorCache.invalidate();
+            }
+        });
     }
 
     private static void calculateDarkTheme() {
@@ -144,11 +162,28 @@ public final class StyleUtils {
      * @return Eclipse color.
      */
     public static Color createColor(java.awt.Color color, Display display) {
-        if(isDarkTheme) {
+        final boolean dark = isDarkTheme;
+        if(dark) {
             color = invertLightness(color);
         }
-        // GTODO: this color object needs to be disposed manually!
-        return new Color(display, color.getRed(), color.getGreen(), color.getBlue());
+        // Colors are shared between style ranges, and disposed by {@link #disposeColors()}.
+        return colorCache.get(color.getRed(), color.getGreen(), color.getBlue(), dark, display);
+    }
+
+    /**
+     * @return Shared cache of colors created by {@link #createColor(java.awt.Color, Display)}, for inspecting cache
+     *         statistics.
+     */
+    public static ColorCache colorCache() {
+        return colorCache;
+    }
+
+    /**
+     * Disposes all colors created by {@link #createColor(java.awt.Color, Display)}. Must only be called when no text
+     * presentations use these colors any more, for example when the plugin is stopped.
+     */
+    public static void disposeColors() {
+        colorCache.dispose();
     }
 
     // Invert lightness of color (note: lightness != brightness/value! L=0 is black, L=1 is white, L=0.5 is color).
@@ -15,9 +15,12 @@ import org.metaborg.spoofax.core.unit.ISpoofaxAnalyzeUnitUpdate;
 import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
 import org.metaborg.spoofax.core.unit.ISpoofaxTransformUnit;
 import org.metaborg.spoofax.eclipse.dialogs.EclipseSpoofaxDialogService;
+import org.metaborg.spoofax.eclipse.build.BuildStateStore;
+import org.metaborg.spoofax.eclipse.editor.EditorUpdateScheduler;
 import org.metaborg.spoofax.eclipse.editor.IEclipseEditorRegistry;
 import org.metaborg.spoofax.eclipse.editor.IEclipseEditorRegistryInternal;
 import org.metaborg.spoofax.eclipse.editor.SpoofaxEditorRegistry;
+import org.metaborg.spoofax.eclipse.job.CancellationMetrics;
 import org.metaborg.spoofax.eclipse.job.GlobalSchedulingRules;
 import org.metaborg.spoofax.eclipse.language.EclipseLanguageChangeProcessor;
 import org.metaborg.spoofax.eclipse.language.LanguageLoader;
@@ -46,9 +49,12 @@ public class SpoofaxEclipseModule extends SpoofaxModule {
         super.configure();
 
         bind(GlobalSchedulingRules.class).in(Singleton.class);
+        bind(CancellationMetrics.class).in(Singleton.class);
         bind(EclipseLanguageChangeProcessor.class).in(Singleton.class);
         bind(LanguageLoader.class).in(Singleton.class);
         bind(SpoofaxPreferences.class).in(Singleton.class);
+        bind(EditorUpdateScheduler.class).in(Singleton.class);
+        bind(BuildStateStore.class).in(Singleton.class);
     }
 
 
@@ -2,6 +2,7 @@ package org.metaborg.spoofax.eclipse;
 
 import java.net.URL;
 
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.resource.ImageRegistry;
 import org.eclipse.swt.graphics.Image;
@@ -10,9 +11,12 @@ import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.processing.IProcessorRunner;
 import org.metaborg.spoofax.core.Spoofax;
+import org.metaborg.spoofax.eclipse.build.BuildStateStore;
 import org.metaborg.spoofax.eclipse.editor.IEclipseEditorRegistryInternal;
 import org.metaborg.spoofax.eclipse.logging.LoggingConfiguration;
 import org.metaborg.spoofax.eclipse.processing.SpoofaxProcessor;
+import org.metaborg.spoofax.eclipse.resource.EclipseResourceService;
+import org.metaborg.spoofax.eclipse.util.StyleUtils;
 import org.osgi.framework.BundleContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,6 +54,8 @@ public class SpoofaxPlugin extends AbstractUIPlugin implements IStartup {
         injector.getInstance(IProcessorRunner.class);
         // Eagerly register editor registry so that editor changes are processed.
         injector.getInstance(IEclipseEditorRegistryInternal.class).register();
+        // Register build state store so that build states are stored when the workspace is saved.
+        ResourcesPlugin.getWorkspace().addSaveParticipant(id, injector.getInstance(BuildStateStore.class));
 
         doneLoading = true;
     }
@@ -70,9 +76,15 @@ public class SpoofaxPlugin extends AbstractUIPlugin implements IStartup {
     @Override public void stop(BundleContext context) throws Exception {
         logger.debug("Stopping Spoofax plugin");
         doneLoading = false;
+        ResourcesPlugin.getWorkspace().removeSaveParticipant(id);
+        final EclipseResourceService resourceService = injector.getInstance(EclipseResourceService.class);
+        logger.debug("Disposing resource cache, {}", resourceService.cache());
+        resourceService.dispose();
         injector = null;
         spoofax.close();
         spoofax = null;
+        logger.debug("Disposing text style colors, {}", StyleUtils.colorCache());
+        StyleUtils.disposeColors();
         logger = null;
         plugin = null;
         super.stop(context);
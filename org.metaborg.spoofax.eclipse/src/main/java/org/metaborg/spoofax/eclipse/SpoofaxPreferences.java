@@ -14,6 +14,7 @@ public class SpoofaxPreferences {
     private final Command disableIncrementalBuildCommand;
     private final Command disableEditorAnalysisCommand;
     private final Command delayEditorAnalysisCommand;
+    private final Command directReadsCommand;
 
 
     @jakarta.inject.Inject public SpoofaxPreferences() {
@@ -26,6 +27,7 @@ public class SpoofaxPreferences {
             commandService.getCommand("org.metaborg.spoofax.eclipse.command.disable.editoranalysis");
         this.delayEditorAnalysisCommand =
             commandService.getCommand("org.metaborg.spoofax.eclipse.command.delay.editoranalysis");
+        this.directReadsCommand = commandService.getCommand("org.metaborg.spoofax.eclipse.command.directreads");
     }
 
 
@@ -44,4 +46,8 @@ public class SpoofaxPreferences {
     public boolean delayEditorAnalysis() {
         return CommandStateUtils.toggleState(delayEditorAnalysisCommand);
     }
+
+    public boolean directReads() {
+        return CommandStateUtils.toggleState(directReadsCommand);
+    }
 }
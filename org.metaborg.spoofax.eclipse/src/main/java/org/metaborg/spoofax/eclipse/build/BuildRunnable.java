@@ -17,7 +17,7 @@ import org.metaborg.core.transform.ITransformUnit;
 import org.metaborg.spoofax.eclipse.processing.Progress;
 import org.metaborg.spoofax.eclipse.project.EclipseProject;
 import org.metaborg.spoofax.eclipse.resource.IEclipseResourceService;
-import org.metaborg.spoofax.eclipse.util.MarkerUtils;
+import org.metaborg.spoofax.eclipse.util.MarkerReconciler;
 import org.metaborg.spoofax.eclipse.util.Nullable;
 import org.metaborg.util.Ref;
 import org.metaborg.util.log.ILogger;
@@ -62,8 +62,10 @@ public class BuildRunnable<P extends IParseUnit, A extends IAnalyzeUnit, AU exte
             return;
         }
 
+        // Record marker changes and only apply the differences with existing markers afterwards.
+        final MarkerReconciler markers = new MarkerReconciler();
         final IProject eclipseProject = ((EclipseProject) input.project).eclipseProject;
-        MarkerUtils.clearAll(eclipseProject);
+        markers.clearAll(eclipseProject);
 
         for(FileObject resource : output.changedResources()) {
             if(output.includedResources().contains(resource.getName())) {
@@ -76,7 +78,7 @@ public class BuildRunnable<P extends IParseUnit, A extends IAnalyzeUnit, AU exte
                 logger.debug("Cannot clear markers for {}, resource is not in the Eclipse workspace", resource);
                 continue;
             }
-            MarkerUtils.clearAll(eclipseResource);
+            markers.clearAll(eclipseResource);
         }
 
         for(P result : output.parseResults()) {
@@ -95,7 +97,7 @@ public class BuildRunnable<P extends IParseUnit, A extends IAnalyzeUnit, AU exte
                     logger.debug("Cannot create marker for {}, resource is not in the Eclipse workspace", resource);
                     continue;
                 }
-                MarkerUtils.createMarker(eclipseResource, message);
+                markers.add(eclipseResource, message);
             }
         }
 
@@ -121,7 +123,7 @@ public class BuildRunnable<P extends IParseUnit, A extends IAnalyzeUnit, AU exte
                     logger.debug("Cannot create marker for {}, resource is not in the Eclipse workspace", resource);
                     continue;
                 }
-                MarkerUtils.createMarker(eclipseResource, message);
+                markers.add(eclipseResource, message);
             }
         }
 
@@ -137,9 +139,9 @@ public class BuildRunnable<P extends IParseUnit, A extends IAnalyzeUnit, AU exte
                     resource);
                 continue;
             }
-            MarkerUtils.clearAnalysis(eclipseResource);
+            markers.clearAnalysis(eclipseResource);
             for(IMessage message : update.messages()) {
-                MarkerUtils.createMarker(eclipseResource, message);
+                markers.add(eclipseResource, message);
             }
         }
 
@@ -155,9 +157,11 @@ public class BuildRunnable<P extends IParseUnit, A extends IAnalyzeUnit, AU exte
                 logger.debug("Cannot create marker for {}, resource is not in the Eclipse workspace", resource);
                 continue;
             }
-            MarkerUtils.createMarker(eclipseResource, message);
+            markers.add(eclipseResource, message);
         }
 
+        markers.reconcile();
+
         outputRef.set(output);
     }
 }
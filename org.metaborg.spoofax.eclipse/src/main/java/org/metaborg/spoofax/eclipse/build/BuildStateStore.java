@@ -0,0 +1,342 @@
+package org.metaborg.spoofax.eclipse.build;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.vfs2.FileName;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ISaveContext;
+import org.eclipse.core.resources.ISaveParticipant;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.Job;
+import org.metaborg.core.build.BuildState;
+import org.metaborg.core.build.LanguageBuildState;
+import org.metaborg.core.language.ILanguageIdentifierService;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.language.ILanguageService;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.core.resource.IResourceService;
+import org.metaborg.spoofax.eclipse.SpoofaxPlugin;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.spoofax.eclipse.util.StatusUtils;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Keeps the build states of projects, and persists them in the state location of the plugin such that the first
+ * incremental build after a restart does not start from an empty build state. States are written in the background
+ * after builds complete and when the workspace is saved, and are loaded lazily on the first build of a project.
+ *
+ * Together with a build state, the modification stamps of files in the project are stored. A loaded build state is
+ * only used if every file that is not part of the resource delta of the build still has its stored modification stamp,
+ * which guarantees that the delta covers all changes since the state was stored. Build states are stored in an explicit
+ * format: for each language implementation, its identifier and the URIs of its source and include files. A stored
+ * state is discarded if its languages are not loaded or its files cannot be resolved.
+ */
+public class BuildStateStore implements ISaveParticipant {
+    private static final ILogger logger = LoggerUtils.logger(BuildStateStore.class);
+
+    private static final int formatVersion = 2;
+    private static final String directoryName = "buildstate";
+    private static final long persistDelay = 10000;
+
+    private final IResourceService resourceService;
+    private final ILanguageIdentifierService languageIdentifierService;
+    private final ILanguageService languageService;
+
+    private final Map<IProject, BuildState> states = new HashMap<>();
+    private final Set<IProject> loaded = new HashSet<>();
+    private final Set<IProject> dirty = new HashSet<>();
+    private final Job persistJob;
+
+
+    @jakarta.inject.Inject public BuildStateStore(IResourceService resourceService,
+        ILanguageIdentifierService languageIdentifierService, ILanguageService languageService) {
+        this.resourceService = resourceService;
+        this.languageIdentifierService = languageIdentifierService;
+        this.languageService = languageService;
+
+        this.persistJob = new Job("Storing Spoofax build states") {
+            @Override protected IStatus run(IProgressMonitor monitor) {
+                persist(dirtyProjects());
+                return StatusUtils.success();
+            }
+        };
+        persistJob.setSystem(true);
+        persistJob.setPriority(Job.DECORATE);
+    }
+
+
+    /**
+     * Gets the build state of given project, loading a stored state if the state of the project has not been requested
+     * before.
+     *
+     * @param project
+     *            Project to get the build state for.
+     * @param delta
+     *            Resource delta of the build, used to validate a stored state.
+     * @return Build state, or null if there is no (valid) build state.
+     */
+    public synchronized @Nullable BuildState get(IProject project, IResourceDelta delta) {
+        if(loaded.add(project)) {
+            final BuildState state = load(project, delta);
+            if(state != null) {
+                states.put(project, state);
+            }
+        }
+        return states.get(project);
+    }
+
+    /**
+     * Sets the build state of given project after a build completed, and schedules storing it.
+     */
+    public synchronized void put(IProject project, BuildState state) {
+        loaded.add(project);
+        states.put(project, state);
+        dirty.add(project);
+        persistJob.schedule(persistDelay);
+    }
+
+    /**
+     * Removes the build state of given project, including the stored state.
+     */
+    public synchronized void remove(IProject project) {
+        loaded.add(project);
+        states.remove(project);
+        dirty.remove(project);
+        try {
+            Files.deleteIfExists(file(project));
+        } catch(IOException e) {
+            logger.error("Cannot delete stored build state of {}", e, project);
+        }
+    }
+
+
+    @Override public void prepareToSave(ISaveContext context) throws CoreException {
+    }
+
+    @Override public void saving(ISaveContext context) throws CoreException {
+        switch(context.getKind()) {
+            case ISaveContext.FULL_SAVE:
+            case ISaveContext.SNAPSHOT:
+                persistJob.cancel();
+                persist(dirtyProjects());
+                break;
+            case ISaveContext.PROJECT_SAVE:
+                final IProject project = context.getProject();
+                synchronized(this) {
+                    if(!dirty.remove(project)) {
+                        return;
+                    }
+                }
+                persist(Collections.singleton(project));
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override public void doneSaving(ISaveContext context) {
+    }
+
+    @Override public void rollback(ISaveContext context) {
+    }
+
+
+    private synchronized Set<IProject> dirtyProjects() {
+        final Set<IProject> projects = new HashSet<>(dirty);
+        dirty.clear();
+        return projects;
+    }
+
+    private void persist(Iterable<IProject> projects) {
+        for(IProject project : projects) {
+            final BuildState state;
+            synchronized(this) {
+                state = states.get(project);
+            }
+            if(state == null || !project.isAccessible()) {
+                continue;
+            }
+            try {
+                store(project, state);
+            } catch(IOException | CoreException | RuntimeException e) {
+                logger.warn("Cannot store build state of {}, it will be rebuilt after a restart", e, project);
+                try {
+                    Files.deleteIfExists(file(project));
+                } catch(IOException deleteException) {
+                    logger.error("Cannot delete stored build state of {}", deleteException, project);
+                }
+            }
+        }
+    }
+
+    private void store(IProject project, BuildState state) throws IOException, CoreException {
+        final Path file = file(project);
+        Files.createDirectories(file.getParent());
+        final Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                output.writeInt(formatVersion);
+                final Map<String, Long> stamps = stamps(project);
+                output.writeInt(stamps.size());
+                for(Map.Entry<String, Long> entry : stamps.entrySet()) {
+                    output.writeUTF(entry.getKey());
+                    output.writeLong(entry.getValue());
+                }
+
+                final List<ILanguageImpl> languages = new ArrayList<>();
+                for(ILanguageImpl language : languageService.getAllImpls()) {
+                    if(state.get(language) != null) {
+                        languages.add(language);
+                    }
+                }
+                output.writeInt(languages.size());
+                for(ILanguageImpl language : languages) {
+                    final LanguageBuildState languageState = state.get(language);
+                    output.writeUTF(language.id().toString());
+                    writeNames(output, languageState.sourceFiles());
+                    writeNames(output, languageState.includeFiles());
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.trace("Stored build state of {}", project);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private @Nullable BuildState load(IProject project, IResourceDelta delta) {
+        final Path file = file(project);
+        if(!Files.exists(file)) {
+            return null;
+        }
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if(input.readInt() != formatVersion) {
+                return null;
+            }
+            final int stampCount = input.readInt();
+            final Map<String, Long> storedStamps = new HashMap<>(stampCount * 2);
+            for(int i = 0; i < stampCount; ++i) {
+                storedStamps.put(input.readUTF(), input.readLong());
+            }
+            if(!valid(storedStamps, stamps(project), changedPaths(delta))) {
+                logger.debug("Discarding stored build state of {}, files changed outside of the build delta", project);
+                return null;
+            }
+
+            final BuildState state = new BuildState();
+            final int languageCount = input.readInt();
+            for(int i = 0; i < languageCount; ++i) {
+                final LanguageIdentifier id = LanguageIdentifier.parse(input.readUTF());
+                final Set<FileName> sourceFiles = readNames(input);
+                final Set<FileName> includeFiles = readNames(input);
+                final ILanguageImpl language = languageService.getImpl(id);
+                if(language == null) {
+                    logger.debug("Discarding stored build state of {}, language {} is not loaded", project, id);
+                    return null;
+                }
+                state.add(language, new LanguageBuildState(resourceService, languageIdentifierService, language,
+                    sourceFiles, includeFiles));
+            }
+            logger.debug("Loaded stored build state of {}", project);
+            return state;
+        } catch(IOException | CoreException | RuntimeException e) {
+            // Includes failures to resolve stored languages and resources, which throw runtime exceptions.
+            logger.debug("Cannot load stored build state of {}, building without state", e, project);
+            try {
+                Files.deleteIfExists(file);
+            } catch(IOException deleteException) {
+                logger.error("Cannot delete stored build state of {}", deleteException, project);
+            }
+            return null;
+        }
+    }
+
+    private static void writeNames(DataOutputStream output, Iterable<FileName> names) throws IOException {
+        final List<String> uris = new ArrayList<>();
+        for(FileName name : names) {
+            uris.add(name.getURI());
+        }
+        output.writeInt(uris.size());
+        for(String uri : uris) {
+            output.writeUTF(uri);
+        }
+    }
+
+    private Set<FileName> readNames(DataInputStream input) throws IOException {
+        final int count = input.readInt();
+        final Set<FileName> names = new HashSet<>(count * 2);
+        for(int i = 0; i < count; ++i) {
+            names.add(resourceService.resolve(input.readUTF()).getName());
+        }
+        return names;
+    }
+
+    private static boolean valid(Map<String, Long> storedStamps, Map<String, Long> currentStamps,
+        Set<String> changedPaths) {
+        for(Map.Entry<String, Long> entry : storedStamps.entrySet()) {
+            final String path = entry.getKey();
+            if(!changedPaths.contains(path) && !entry.getValue().equals(currentStamps.get(path))) {
+                return false;
+            }
+        }
+        for(String path : currentStamps.keySet()) {
+            if(!changedPaths.contains(path) && !storedStamps.containsKey(path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, Long> stamps(IProject project) throws CoreException {
+        final HashMap<String, Long> stamps = new HashMap<>();
+        project.accept(proxy -> {
+            if(proxy.isDerived() || proxy.isTeamPrivateMember()) {
+                return false;
+            }
+            if(proxy.getType() == IResource.FILE) {
+                stamps.put(proxy.requestFullPath().toString(), proxy.getModificationStamp());
+            }
+            return true;
+        }, IResource.NONE);
+        return stamps;
+    }
+
+    private static Set<String> changedPaths(IResourceDelta delta) throws CoreException {
+        final Set<String> paths = new HashSet<>();
+        delta.accept(child -> {
+            paths.add(child.getFullPath().toString());
+            return true;
+        });
+        return paths;
+    }
+
+    private static Path file(IProject project) {
+        final Path directory = SpoofaxPlugin.plugin().getStateLocation().append(directoryName).toFile().toPath();
+        try {
+            return directory.resolve(URLEncoder.encode(project.getName(), "UTF-8") + ".state");
+        } catch(UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,17 +1,18 @@
 package org.metaborg.spoofax.eclipse.build;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.eclipse.core.resources.IResourceDelta;
-import org.eclipse.core.resources.IResourceDeltaVisitor;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.MultiRule;
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.action.CompileGoal;
 import org.metaborg.core.analysis.IAnalyzeUnit;
@@ -25,6 +26,7 @@ import org.metaborg.core.build.IBuildOutput;
 import org.metaborg.core.build.dependency.IDependencyService;
 import org.metaborg.core.build.dependency.MissingDependencies;
 import org.metaborg.core.build.paths.ILanguagePathService;
+import org.metaborg.core.language.ILanguageService;
 import org.metaborg.core.processing.IProcessorRunner;
 import org.metaborg.core.processing.ITask;
 import org.metaborg.core.project.IProject;
@@ -38,9 +40,11 @@ import org.metaborg.spoofax.core.Spoofax;
 import org.metaborg.spoofax.core.resource.SpoofaxIgnoresSelector;
 import org.metaborg.spoofax.eclipse.SpoofaxPlugin;
 import org.metaborg.spoofax.eclipse.SpoofaxPreferences;
+import org.metaborg.spoofax.eclipse.job.GlobalSchedulingRules;
 import org.metaborg.spoofax.eclipse.processing.Monitor;
 import org.metaborg.spoofax.eclipse.resource.IEclipseResourceService;
 import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.spoofax.eclipse.util.SourceFiles;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
@@ -53,14 +57,19 @@ public abstract class ProjectBuilder<P extends IParseUnit, A extends IAnalyzeUni
     public static final String id = SpoofaxPlugin.id + ".builder";
 
     private final IEclipseResourceService resourceService;
+    private final ILanguageService languageService;
     private final ILanguagePathService languagePathService;
     private final IProjectService projectService;
     private final IDependencyService dependencyService;
     private final IProcessorRunner<P, A, AU, T> processorRunner;
 
     private final SpoofaxPreferences preferences;
+    private final GlobalSchedulingRules globalRules;
 
-    private final Map<org.eclipse.core.resources.IProject, BuildState> states = new HashMap<>();
+    private final BuildStateStore states;
+    private final ProjectDependencies dependencies;
+
+    private List<org.eclipse.core.resources.IProject> lastDependencies = Collections.emptyList();
 
 
     public ProjectBuilder(IProcessorRunner<P, A, AU, T> processorRunner) {
@@ -70,11 +79,29 @@ public abstract class ProjectBuilder<P extends IParseUnit, A extends IAnalyzeUni
         this.resourceService = injector.getInstance(IEclipseResourceService.class);
 
         final Spoofax spoofax = SpoofaxPlugin.spoofax();
+        this.languageService = spoofax.languageService;
         this.languagePathService = spoofax.languagePathService;
         this.projectService = spoofax.projectService;
         this.dependencyService = spoofax.dependencyService;
 
         this.preferences = injector.getInstance(SpoofaxPreferences.class);
+        this.globalRules = injector.getInstance(GlobalSchedulingRules.class);
+        this.states = injector.getInstance(BuildStateStore.class);
+        this.dependencies = new ProjectDependencies();
+    }
+
+
+    /**
+     * Builds lock the project being built instead of the workspace, together with the Stratego and language service
+     * locks, since builds do Stratego calls and use the language service, which are not thread-safe. Spoofax builds
+     * therefore never run concurrently with each other, with editor analysis, or with language loading, but no longer
+     * block other builders, such as Java builds of other projects, and workspace operations on other projects. Eclipse
+     * only runs builds of different projects concurrently when the "max simultaneous builds" setting of the workspace
+     * is above 1.
+     */
+    @Override public ISchedulingRule getRule(int kind, Map<String, String> args) {
+        return new MultiRule(
+            new ISchedulingRule[] { getProject(), globalRules.strategoLock(), globalRules.languageServiceLock() });
     }
 
 
@@ -114,12 +141,13 @@ public abstract class ProjectBuilder<P extends IParseUnit, A extends IAnalyzeUni
                 if(delta == null) {
                     task = fullBuild(project, monitor);
                 } else {
-                    task = incrBuild(project, states.get(eclipseProject), delta, monitor);
+                    task = incrBuild(project, states.get(eclipseProject, delta), delta, monitor);
                 }
             }
 
-            task.schedule().block();
-            if(task.cancelled()) {
+            if(task == null) {
+                logger.trace("Skipping build of {}; no relevant resources changed", project);
+            } else if(task.schedule().block().cancelled()) {
                 cancel(monitor);
             } else {
                 final IBuildOutput<P, A, AU, T> output = task.result();
@@ -134,14 +162,19 @@ public abstract class ProjectBuilder<P extends IParseUnit, A extends IAnalyzeUni
             logger.error("Cannot build project {}; build failed unexpectedly", e, project);
         }
 
-        // Return value is used to declare dependencies on other projects, but right now this is not possible in
-        // Spoofax, so always return null.
-        return null;
+        // Declare dependencies on other projects, to track deltas of those projects and to order builds.
+        final List<org.eclipse.core.resources.IProject> projectDependencies = dependencies.of(eclipseProject);
+        if(!projectDependencies.equals(lastDependencies)) {
+            lastDependencies = projectDependencies;
+            eclipseProject.clearCachedDynamicReferences();
+        }
+        return projectDependencies.toArray(new org.eclipse.core.resources.IProject[projectDependencies.size()]);
     }
 
     private @Nullable ITask<? extends IBuildOutput<P, A, AU, T>> fullBuild(IProject project, IProgressMonitor monitor)
         throws InterruptedException, FileSystemException, MetaborgException {
-        final Iterable<FileObject> resources = ResourceUtils.find(project.location());
+        final Iterable<FileObject> resources = SourceFiles.find(resourceService, project.location(),
+            new SpoofaxIgnoresSelector(), SourceFiles.sourceExtensions(languageService));
         final Iterable<ResourceChange> creations = ResourceUtils.toChanges(resources, ResourceChangeKind.Create);
         processorRunner.updateDialects(project.location(), creations).schedule().block();
 
@@ -160,18 +193,15 @@ public abstract class ProjectBuilder<P extends IParseUnit, A extends IAnalyzeUni
         return processorRunner.build(input, spxMonitor, spxMonitor);
     }
 
-    private ITask<? extends IBuildOutput<P, A, AU, T>> incrBuild(IProject project, @Nullable BuildState state,
-        IResourceDelta delta, IProgressMonitor monitor) throws CoreException, InterruptedException, MetaborgException {
-        final Collection<ResourceChange> changes = new ArrayList<>();
-        delta.accept(new IResourceDeltaVisitor() {
-            @Override public boolean visit(IResourceDelta innerDelta) throws CoreException {
-                final ResourceChange change = resourceService.resolve(innerDelta);
-                if(change != null) {
-                    changes.add(change);
-                }
-                return true;
-            }
-        });
+    private @Nullable ITask<? extends IBuildOutput<P, A, AU, T>> incrBuild(IProject project,
+        @Nullable BuildState state, IResourceDelta delta, IProgressMonitor monitor)
+        throws CoreException, InterruptedException, MetaborgException, FileSystemException {
+        final Collection<ResourceChange> changes = SourceFiles.changes(resourceService, delta,
+            new SpoofaxIgnoresSelector(), SourceFiles.sourceExtensions(languageService));
+        if(changes.isEmpty()) {
+            // Only irrelevant resources changed, such as markers or build output.
+            return null;
+        }
 
         processorRunner.updateDialects(project.location(), changes).schedule().block();
 
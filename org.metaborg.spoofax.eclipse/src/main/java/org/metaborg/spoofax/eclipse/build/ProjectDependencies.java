@@ -0,0 +1,89 @@
+package org.metaborg.spoofax.eclipse.build;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.vfs2.FileObject;
+import org.eclipse.core.resources.IBuildConfiguration;
+import org.eclipse.core.resources.IDynamicReferenceProvider;
+import org.eclipse.core.resources.IResource;
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.build.dependency.IDependencyService;
+import org.metaborg.core.language.ILanguageComponent;
+import org.metaborg.core.project.IProject;
+import org.metaborg.core.project.IProjectService;
+import org.metaborg.spoofax.core.Spoofax;
+import org.metaborg.spoofax.eclipse.SpoofaxPlugin;
+import org.metaborg.spoofax.eclipse.resource.IEclipseResourceService;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Computes the Eclipse projects that a Spoofax project depends on: workspace projects that contain the language
+ * components that the project has a compile or source dependency on. Registered as dynamic reference provider of the
+ * Spoofax builder, such that Eclipse builds dependencies first and builds independent projects concurrently.
+ */
+public class ProjectDependencies implements IDynamicReferenceProvider {
+    private static final ILogger logger = LoggerUtils.logger(ProjectDependencies.class);
+
+    private final IEclipseResourceService resourceService;
+    private final IProjectService projectService;
+    private final IDependencyService dependencyService;
+
+
+    public ProjectDependencies() {
+        this.resourceService = SpoofaxPlugin.injector().getInstance(IEclipseResourceService.class);
+
+        final Spoofax spoofax = SpoofaxPlugin.spoofax();
+        this.projectService = spoofax.projectService;
+        this.dependencyService = spoofax.dependencyService;
+    }
+
+
+    @Override public List<org.eclipse.core.resources.IProject> getDependentProjects(
+        IBuildConfiguration buildConfiguration) {
+        return of(buildConfiguration.getProject());
+    }
+
+    /**
+     * @return Workspace projects that given project depends on, in no particular order.
+     */
+    public List<org.eclipse.core.resources.IProject> of(org.eclipse.core.resources.IProject eclipseProject) {
+        if(!eclipseProject.isAccessible()) {
+            return Collections.emptyList();
+        }
+        final IProject project = projectService.get(resourceService.resolve(eclipseProject));
+        if(project == null) {
+            return Collections.emptyList();
+        }
+
+        final Set<org.eclipse.core.resources.IProject> dependencies = new LinkedHashSet<>();
+        try {
+            for(ILanguageComponent component : dependencyService.compileDeps(project)) {
+                add(dependencies, component);
+            }
+            for(ILanguageComponent component : dependencyService.sourceDeps(project)) {
+                add(dependencies, component);
+            }
+        } catch(MetaborgException e) {
+            logger.debug("Cannot compute project dependencies of {}, some dependencies are missing", e, project);
+        }
+        dependencies.remove(eclipseProject);
+        return new ArrayList<>(dependencies);
+    }
+
+
+    private void add(Set<org.eclipse.core.resources.IProject> dependencies, ILanguageComponent component) {
+        final FileObject location = component.location();
+        if(location == null) {
+            return;
+        }
+        final IResource resource = resourceService.unresolve(location);
+        if(resource != null && resource.getProject() != null) {
+            dependencies.add(resource.getProject());
+        }
+    }
+}
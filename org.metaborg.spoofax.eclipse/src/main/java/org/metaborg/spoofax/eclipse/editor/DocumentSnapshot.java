@@ -0,0 +1,106 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.eclipse.swt.widgets.Display;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.util.Ref;
+
+/**
+ * Cheap, immutable snapshot of a document, identified by the modification stamp of the document. Creating a snapshot
+ * does not copy the text of the document; the text is copied at most once, on the UI thread, when it is first requested
+ * with {@link #text()}. Checking if a snapshot is still current is a comparison of modification stamps.
+ *
+ * Documents that do not support modification stamps fall back to copying the text when the snapshot is created, and
+ * comparing texts to check if the snapshot is still current.
+ */
+public class DocumentSnapshot {
+    private final IDocument document;
+    private final long stamp;
+    private volatile @Nullable String text;
+
+
+    /**
+     * Creates a snapshot of the current state of given document. Must be called on the thread that modifies the
+     * document, typically the UI thread.
+     */
+    public DocumentSnapshot(IDocument document) {
+        this.document = document;
+        this.stamp = stamp(document);
+        this.text = stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP ? document.get() : null;
+    }
+
+
+    /**
+     * @return Modification stamp of the document when this snapshot was created.
+     */
+    public long stamp() {
+        return stamp;
+    }
+
+    /**
+     * @return True if given document is the document of this snapshot, and it has not been modified since this
+     *         snapshot was created.
+     */
+    public boolean isCurrent(@Nullable IDocument currentDocument) {
+        if(currentDocument != document) {
+            return false;
+        }
+        if(stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP) {
+            return document.get().equals(text);
+        }
+        return stamp(document) == stamp;
+    }
+
+    /**
+     * Gets the text of the document as it was when this snapshot was created. The text is copied from the document on
+     * the first call, which can be made from any thread. The copy is taken on the UI thread, since the document is
+     * modified on the UI thread without synchronization, such that copying it from another thread could observe a
+     * partially applied modification that a check of the modification stamp does not detect.
+     *
+     * @return Text of the snapshot, or null if the document was modified since this snapshot was created, in which case
+     *         the text is no longer available.
+     */
+    public @Nullable String text() {
+        final String cachedText = text;
+        if(cachedText != null) {
+            return cachedText;
+        }
+        if(!isCurrent(document)) {
+            return null;
+        }
+        if(Display.getCurrent() != null) {
+            return copyText();
+        }
+        final Ref<String> copiedText = new Ref<>();
+        try {
+            Display.getDefault().syncExec(() -> copiedText.set(copyText()));
+        } catch(RuntimeException e) {
+            // Display was disposed.
+            return null;
+        }
+        return copiedText.get();
+    }
+
+
+    private @Nullable String copyText() {
+        if(!isCurrent(document)) {
+            return null;
+        }
+        final String copiedText = document.get();
+        text = copiedText;
+        return copiedText;
+    }
+
+    private static long stamp(IDocument document) {
+        if(document instanceof IDocumentExtension4) {
+            return ((IDocumentExtension4) document).getModificationStamp();
+        }
+        return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+    }
+
+
+    @Override public String toString() {
+        return "DocumentSnapshot@" + stamp;
+    }
+}
@@ -1,7 +1,11 @@
 package org.metaborg.spoofax.eclipse.editor;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.vfs2.FileObject;
 import org.eclipse.core.resources.IResource;
@@ -13,7 +17,9 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.MultiRule;
 import org.eclipse.ui.IEditorInput;
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.MetaborgRuntimeException;
@@ -48,9 +54,13 @@ import org.metaborg.core.syntax.ISyntaxService;
 import org.metaborg.core.syntax.ParseException;
 import org.metaborg.core.unit.IInputUnitService;
 import org.metaborg.spoofax.core.style.CategorizerValidator;
-import org.metaborg.spoofax.eclipse.job.ThreadKillerJob;
+import org.metaborg.spoofax.eclipse.job.CancellationMetrics;
+import org.metaborg.spoofax.eclipse.job.CancellationToken;
+import org.metaborg.spoofax.eclipse.job.GlobalSchedulingRules;
+import org.metaborg.spoofax.eclipse.job.ThreadInterrupterJob;
 import org.metaborg.spoofax.eclipse.processing.Monitor;
 import org.metaborg.spoofax.eclipse.resource.IEclipseResourceService;
+import org.metaborg.spoofax.eclipse.util.MarkerReconciler;
 import org.metaborg.spoofax.eclipse.util.MarkerUtils;
 import org.metaborg.spoofax.eclipse.util.Nullable;
 import org.metaborg.spoofax.eclipse.util.StatusUtils;
@@ -58,11 +68,27 @@ import org.metaborg.util.concurrent.IClosableLock;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
+/**
+ * Job that updates an editor in stages, where each stage is a separate job that only holds the scheduling rules it
+ * needs while it is computing:
+ * <ul>
+ * <li>{@link Stage#PARSE}: parses, styles, and creates the outline, under the rule of the file.</li>
+ * <li>{@link Stage#MESSAGES}: shows parse messages, under the rule of the file.</li>
+ * <li>{@link Stage#ANALYSIS}: analyzes and shows analysis messages, under the rule of the project and the Stratego
+ * lock.</li>
+ * </ul>
+ * Delays between stages are implemented by scheduling the next stage with a delay, such that no rules are held while
+ * waiting. The next stage is only scheduled, and only runs, if the update is still the most recent update of the editor.
+ */
 public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A extends IAnalyzeUnit, AU extends IAnalyzeUnitUpdate, F>
     extends Job {
     private static final ILogger logger = LoggerUtils.logger(EditorUpdateJob.class);
     private static final long interruptTimeMillis = 5000;
-    private static final long killTimeMillis = 10000;
+    private static final long warnTimeMillis = 10000;
+
+    public enum Stage {
+        PARSE, MESSAGES, ANALYSIS
+    }
 
     private final IEclipseResourceService resourceService;
     private final ILanguageIdentifierService languageIdentifierService;
@@ -82,13 +108,25 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
     private final IEditorInput input;
     private final @Nullable IResource eclipseResource;
     private final FileObject resource;
-    private final String text;
+    private final DocumentSnapshot snapshot;
     private final boolean changed;
     private final boolean instantaneous;
-    private final long analysisDelayMs;
+    private final EditorUpdateScheduler scheduler;
+    private final TypingRate typingRate;
     private final boolean analysis;
+    private final GlobalSchedulingRules globalRules;
+    private final AtomicLong updateGeneration;
+    private final long generation;
+
+    private final Stage stage;
+    private final @Nullable ILanguageImpl langImpl;
+    private final @Nullable IProject project;
+    private final @Nullable P parseResult;
 
-    private ThreadKillerJob threadKiller;
+    private final CancellationMetrics cancellationMetrics;
+    private final CancellationToken cancellationToken = new CancellationToken();
+
+    private ThreadInterrupterJob threadInterrupter;
 
 
     public EditorUpdateJob(IEclipseResourceService resourceService,
@@ -98,8 +136,9 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
         IOutlineService<P, A> outlineService, IParseResultUpdater<P> parseResultProcessor,
         IAnalysisResultUpdater<P, A> analysisResultProcessor, IAnalysisResultRequester<I, A> analysisResultRequester,
         IEclipseEditor<F> editor, IEditorInput input, @Nullable IResource eclipseResource, FileObject resource,
-        String text, boolean changed, boolean instantaneous,
-        long analysisDelayMs, boolean analysis) {
+        DocumentSnapshot snapshot, boolean changed, boolean instantaneous,
+        EditorUpdateScheduler scheduler, TypingRate typingRate, boolean analysis, GlobalSchedulingRules globalRules,
+        AtomicLong updateGeneration, CancellationMetrics cancellationMetrics) {
         super("Updating Spoofax editor for " + resource.toString());
         setPriority(Job.SHORT);
 
@@ -121,11 +160,65 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
         this.input = input;
         this.eclipseResource = eclipseResource;
         this.resource = resource;
-        this.text = text;
+        this.snapshot = snapshot;
         this.changed = changed;
         this.instantaneous = instantaneous;
-        this.analysisDelayMs = analysisDelayMs;
+        this.scheduler = scheduler;
+        this.typingRate = typingRate;
         this.analysis = analysis;
+        this.globalRules = globalRules;
+        this.updateGeneration = updateGeneration;
+        this.generation = updateGeneration.get();
+        this.cancellationMetrics = cancellationMetrics;
+
+        this.stage = Stage.PARSE;
+        this.langImpl = null;
+        this.project = null;
+        this.parseResult = null;
+
+        setRule(rule());
+    }
+
+    private EditorUpdateJob(EditorUpdateJob<I, P, A, AU, F> previous, Stage stage, ILanguageImpl langImpl,
+        @Nullable IProject project, P parseResult) {
+        super(previous.getName());
+        setPriority(Job.SHORT);
+
+        this.resourceService = previous.resourceService;
+        this.languageIdentifierService = previous.languageIdentifierService;
+        this.contextService = previous.contextService;
+        this.projectService = previous.projectService;
+        this.unitService = previous.unitService;
+        this.syntaxService = previous.syntaxService;
+        this.analyzer = previous.analyzer;
+        this.categorizer = previous.categorizer;
+        this.styler = previous.styler;
+        this.outlineService = previous.outlineService;
+        this.parseResultProcessor = previous.parseResultProcessor;
+        this.analysisResultProcessor = previous.analysisResultProcessor;
+        this.analysisResultRequester = previous.analysisResultRequester;
+
+        this.editor = previous.editor;
+        this.input = previous.input;
+        this.eclipseResource = previous.eclipseResource;
+        this.resource = previous.resource;
+        this.snapshot = previous.snapshot;
+        this.changed = previous.changed;
+        this.instantaneous = previous.instantaneous;
+        this.scheduler = previous.scheduler;
+        this.typingRate = previous.typingRate;
+        this.analysis = previous.analysis;
+        this.globalRules = previous.globalRules;
+        this.updateGeneration = previous.updateGeneration;
+        this.generation = previous.generation;
+        this.cancellationMetrics = previous.cancellationMetrics;
+
+        this.stage = stage;
+        this.langImpl = langImpl;
+        this.project = project;
+        this.parseResult = parseResult;
+
+        setRule(rule());
     }
 
 
@@ -134,12 +227,28 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
     }
 
     @Override protected IStatus run(final IProgressMonitor monitor) {
-        logger.debug("Running editor update job for {}", resource);
+        if(stale()) {
+            logger.trace("Skipping {} stage of editor update job for {}, a newer update exists", stage, resource);
+            return StatusUtils.cancel();
+        }
+        logger.debug("Running {} stage of editor update job for {}", stage, resource);
 
         final IWorkspace workspace = ResourcesPlugin.getWorkspace();
 
         try {
-            final IStatus status = update(workspace, monitor);
+            final IStatus status;
+            switch(stage) {
+                case PARSE:
+                    status = parseStage(monitor);
+                    break;
+                case MESSAGES:
+                    status = messagesStage(workspace, monitor);
+                    break;
+                case ANALYSIS:
+                default:
+                    status = analysisStage(workspace, monitor);
+                    break;
+            }
             return status;
         } catch(MetaborgRuntimeException | MetaborgException | CoreException e) {
             if(monitor.isCanceled()) {
@@ -170,39 +279,45 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
             final String message = logger.format("Failed to update editor for {}", resource);
             logger.error(message, e);
             return StatusUtils.silentError(message, e);
-        } catch(InterruptedException | CancellationException | ThreadDeath e) {
-            return StatusUtils.cancel();
-        } catch(OperationCanceledException e) {
+        } catch(InterruptedException | CancellationException | OperationCanceledException e) {
             return StatusUtils.cancel();
         } catch(Throwable e) {
             final String message = logger.format("Failed to update editor for {}", resource);
             logger.error(message, e);
             return StatusUtils.silentError(message, e);
         } finally {
-            if(threadKiller != null) {
-                threadKiller.cancel();
+            final long cancellationMillis = cancellationToken.finish();
+            if(threadInterrupter != null) {
+                threadInterrupter.cancel();
             }
+            if(cancellationMillis >= 0) {
+                cancellationMetrics.record("editor update " + stage, cancellationMillis);
+            }
+            // Clear interrupted flag, to prevent a late interrupt from leaking into the next job on this thread.
+            Thread.interrupted();
             monitor.done();
         }
     }
 
     @Override protected void canceling() {
+        cancellationToken.cancel();
+
         final Thread thread = getThread();
         if(thread == null) {
             return;
         }
 
-        logger.debug("Cancelling editor update job for {}, interrupting in {}ms, killing in {}ms", resource,
-            interruptTimeMillis, interruptTimeMillis + killTimeMillis);
-        threadKiller = new ThreadKillerJob(thread, killTimeMillis);
-        threadKiller.schedule(interruptTimeMillis);
+        logger.debug("Cancelling editor update job for {}, interrupting in {}ms if cancellation is not honoured",
+            resource, interruptTimeMillis);
+        threadInterrupter = new ThreadInterrupterJob(thread, cancellationToken, warnTimeMillis);
+        threadInterrupter.schedule(interruptTimeMillis);
     }
 
 
-    private IStatus update(IWorkspace workspace, final IProgressMonitor progressMonitor)
-        throws MetaborgException, CoreException, InterruptedException, ThreadDeath {
-        final SubMonitor monitor = SubMonitor.convert(progressMonitor, 95);
-        final Monitor spxMonitor = new Monitor(monitor);
+    private IStatus parseStage(final IProgressMonitor progressMonitor)
+        throws MetaborgException, InterruptedException {
+        final SubMonitor monitor = SubMonitor.convert(progressMonitor, 35);
+        final Monitor spxMonitor = new Monitor(monitor, cancellationToken);
 
         spxMonitor.setDescription("Identifying language");
         final IProject project = projectService.get(resource);
@@ -216,6 +331,12 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
         if(spxMonitor.cancelled())
             return StatusUtils.cancel();
         spxMonitor.setDescription("Parsing");
+        // Copy the text of the document only now that the job is running.
+        final String text = snapshot.text();
+        if(text == null) {
+            // Document was modified after this update was scheduled, a newer update will take care of it.
+            return StatusUtils.cancel();
+        }
         final I inputUnit = unitService.inputUnit(resource, text, langImpl, identified.dialect);
         final P parseResult = parse(inputUnit, spxMonitor.subProgress(20));
 
@@ -241,15 +362,17 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
             return StatusUtils.success();
         }
 
-        // Sleep before showing parse messages to prevent showing irrelevant messages while user is still typing.
-        if(!instantaneous) {
-            try {
-                spxMonitor.setDescription("Waiting");
-                Thread.sleep(300);
-            } catch(InterruptedException e) {
-                return StatusUtils.cancel();
-            }
-        }
+        // Delay showing parse messages to prevent showing irrelevant messages while user is still typing.
+        final long delay = instantaneous ? 0 : scheduler.messagesDelay(typingRate);
+        scheduleNext(monitor, Stage.MESSAGES, langImpl, project, parseResult, delay);
+
+        return StatusUtils.success();
+    }
+
+    private IStatus messagesStage(IWorkspace workspace, final IProgressMonitor progressMonitor)
+        throws CoreException {
+        final SubMonitor monitor = SubMonitor.convert(progressMonitor, 5);
+        final Monitor spxMonitor = new Monitor(monitor, cancellationToken);
 
         if(spxMonitor.cancelled())
             return StatusUtils.cancel();
@@ -266,29 +389,31 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
             return StatusUtils.success();
         }
 
-        // Sleep before analyzing to prevent running many analyses when small edits are made in succession.
-        if(!instantaneous) {
-            try {
-                spxMonitor.setDescription("Waiting");
-                Thread.sleep(analysisDelayMs);
-            } catch(InterruptedException e) {
-                return StatusUtils.cancel();
-            }
-        }
+        // Delay analysis to prevent running many analyses when small edits are made in succession.
+        final long delay = instantaneous ? 0 : scheduler.analysisDelay(langImpl, typingRate);
+        scheduleNext(monitor, Stage.ANALYSIS, langImpl, project, parseResult, delay);
+
+        return StatusUtils.success();
+    }
+
+    private IStatus analysisStage(IWorkspace workspace, final IProgressMonitor progressMonitor)
+        throws MetaborgException, CoreException, InterruptedException {
+        final SubMonitor monitor = SubMonitor.convert(progressMonitor, 55);
+        final Monitor spxMonitor = new Monitor(monitor, cancellationToken);
 
         if(spxMonitor.cancelled())
             return StatusUtils.cancel();
         spxMonitor.setDescription("Analyzing");
-        
+
         final IContext context = contextService.get(resource, project, langImpl);
-        final IAnalyzeResult<A, AU> analysisResult ;
+        final IAnalyzeResult<A, AU> analysisResult;
         final A result = analysisResultRequester.get(resource);
         if(changed || result == null) {
             analysisResult = analyze(parseResult, context, spxMonitor.subProgress(50));
         } else {
             analysisResult = new AnalyzeResult<>(result, context);
         }
-        
+
         if(spxMonitor.cancelled())
             return StatusUtils.cancel();
         spxMonitor.setDescription("Processing analysis messages");
@@ -298,17 +423,53 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
     }
 
 
-    private P parse(I input, Monitor monitor) throws ParseException, InterruptedException, ThreadDeath {
+    private ISchedulingRule rule() {
+        if(eclipseResource == null) {
+            return new MultiRule(new ISchedulingRule[] { globalRules.startupReadLock() });
+        }
+        switch(stage) {
+            case PARSE:
+            case MESSAGES:
+                return new MultiRule(new ISchedulingRule[] { globalRules.startupReadLock(), eclipseResource });
+            case ANALYSIS:
+            default:
+                return new MultiRule(new ISchedulingRule[] { globalRules.startupReadLock(), globalRules.strategoLock(),
+                    eclipseResource.getProject() });
+        }
+    }
+
+    /**
+     * @return True if a newer update was scheduled for the editor after this update, false otherwise.
+     */
+    private boolean stale() {
+        return updateGeneration.get() != generation;
+    }
+
+    private void scheduleNext(IProgressMonitor monitor, Stage nextStage, ILanguageImpl langImpl,
+        @Nullable IProject project, P parseResult, long delay) {
+        if(monitor.isCanceled() || stale()) {
+            return;
+        }
+        final Job job = new EditorUpdateJob<>(this, nextStage, langImpl, project, parseResult);
+        job.schedule(delay);
+    }
+
+
+    private P parse(I input, Monitor monitor) throws ParseException, InterruptedException {
         final P parseResult;
         try {
+            monitor.throwIfCancelled();
             parseResultProcessor.invalidate(resource);
+            final long start = System.nanoTime();
             parseResult = syntaxService.parse(input, monitor, monitor);
+            scheduler.parsed(input.langImpl(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
             parseResultProcessor.update(resource, parseResult);
         } catch(ParseException e) {
             parseResultProcessor.error(resource, e);
             throw e;
-        } catch(ThreadDeath e) {
-            parseResultProcessor.error(resource, new ParseException(input, "Editor update job killed", e));
+        } catch(InterruptedException | CancellationException | OperationCanceledException e) {
+            // Complete the invalidated parse result with an error, such that requesters do not wait forever.
+            parseResultProcessor.error(resource, new ParseException(input, "Editor update job cancelled", e));
             throw e;
         }
         return parseResult;
@@ -318,7 +479,7 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
         final Iterable<IRegionCategory<F>> categories =
             CategorizerValidator.validate(categorizer.categorize(language, parseResult));
         final Iterable<IRegionStyle<F>> styles = styler.styleParsed(language, categories);
-        editor.setStyle(styles, text, monitor);
+        editor.setStyle(styles, snapshot, monitor);
     }
 
     private void outline(final IProgressMonitor monitor, ILanguageImpl language, P parseResult)
@@ -336,33 +497,49 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
     }
 
     private void parseMessages(IWorkspace workspace, Monitor monitor, final P parseResult) throws CoreException {
+        if(editor.isDirty()) {
+            // Show messages for unsaved text as transient annotations, only saving or building creates markers.
+            editor.setLiveMessages(MessageType.PARSER, parseResult.messages(), snapshot);
+            return;
+        }
+
         // Update markers atomically using a workspace runnable, to prevent flashing/jumping markers.
         final IWorkspaceRunnable parseMarkerUpdater = new IWorkspaceRunnable() {
             @Override public void run(IProgressMonitor workspaceMonitor) throws CoreException {
                 if(workspaceMonitor.isCanceled())
                     return;
-                MarkerUtils.clearInternal(eclipseResource);
-                MarkerUtils.clearParser(eclipseResource);
+                final MarkerReconciler markers = new MarkerReconciler();
+                markers.clearInternal(eclipseResource);
+                markers.clearParser(eclipseResource);
                 for(IMessage message : parseResult.messages()) {
-                    MarkerUtils.createMarker(eclipseResource, message);
+                    markers.add(eclipseResource, message);
                 }
+                markers.reconcile();
             }
         };
         workspace.run(parseMarkerUpdater, eclipseResource, IWorkspace.AVOID_UPDATE, monitor.eclipseMonitor());
+        editor.clearLiveMessages(MessageType.PARSER);
     }
 
     private IAnalyzeResult<A, AU> analyze(P parseResult, IContext context, Monitor monitor)
-        throws AnalysisException, InterruptedException, ThreadDeath {
+        throws AnalysisException, InterruptedException {
         final IAnalyzeResult<A, AU> analysisResult;
         try(IClosableLock lock = context.write()) {
             analysisResultProcessor.invalidate(parseResult.source());
             try {
+                // Checkpoint after acquiring the context lock, which may have taken a while.
+                monitor.throwIfCancelled();
+                final long start = System.nanoTime();
                 analysisResult = analyzer.analyze(parseResult, context, monitor, monitor);
+                scheduler.analyzed(parseResult.input().langImpl(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
             } catch(AnalysisException e) {
                 analysisResultProcessor.error(resource, e);
                 throw e;
-            } catch(ThreadDeath e) {
-                analysisResultProcessor.error(resource, new AnalysisException(context, "Editor update job killed", e));
+            } catch(InterruptedException | CancellationException | OperationCanceledException e) {
+                // Complete the invalidated analysis result with an error, such that requesters do not wait forever.
+                analysisResultProcessor.error(resource,
+                    new AnalysisException(context, "Editor update job cancelled", e));
                 throw e;
             }
             analysisResultProcessor.update(analysisResult.result(), new HashSet<>());
@@ -372,17 +549,27 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
 
     private void analysisMessages(IWorkspace workspace, Monitor monitor, final IAnalyzeResult<A, AU> analysisResult)
         throws CoreException {
+        // Show messages for unsaved text as transient annotations, only saving or building creates markers. Messages
+        // for other resources are created as markers, since those resources are not edited in this editor.
+        final boolean live = editor.isDirty();
+        final Collection<IMessage> liveMessages = new ArrayList<>();
+
         // Update markers atomically using a workspace runnable, to prevent flashing/jumping markers.
         final IWorkspaceRunnable analysisMarkerUpdater = new IWorkspaceRunnable() {
             @Override public void run(IProgressMonitor workspaceMonitor) throws CoreException {
                 if(workspaceMonitor.isCanceled())
                     return;
-                MarkerUtils.clearInternal(eclipseResource);
-                MarkerUtils.clearAnalysis(eclipseResource);
-                for(IMessage message : analysisResult.result().messages()) {
-                    if(workspaceMonitor.isCanceled())
-                        return;
-                    MarkerUtils.createMarker(eclipseResource, message);
+                final MarkerReconciler markers = new MarkerReconciler();
+                if(live) {
+                    for(IMessage message : analysisResult.result().messages()) {
+                        liveMessages.add(message);
+                    }
+                } else {
+                    markers.clearInternal(eclipseResource);
+                    markers.clearAnalysis(eclipseResource);
+                    for(IMessage message : analysisResult.result().messages()) {
+                        markers.add(eclipseResource, message);
+                    }
                 }
 
                 for(AU result : analysisResult.updates()) {
@@ -401,15 +588,33 @@ public class EditorUpdateJob<I extends IInputUnit, P extends IParseUnit, A exten
                             messagesEclipseResource);
                         continue;
                     }
-                    MarkerUtils.clearAnalysis(messagesEclipseResource);
+                    if(live && messagesEclipseResource.equals(eclipseResource)) {
+                        liveMessages.clear();
+                        for(IMessage message : result.messages()) {
+                            liveMessages.add(message);
+                        }
+                        continue;
+                    }
+                    markers.clearAnalysis(messagesEclipseResource);
                     for(IMessage message : result.messages()) {
-                        if(workspaceMonitor.isCanceled())
-                            return;
-                        MarkerUtils.createMarker(messagesEclipseResource, message);
+                        markers.add(messagesEclipseResource, message);
                     }
                 }
+
+                if(workspaceMonitor.isCanceled())
+                    return;
+                markers.reconcile();
             }
         };
         workspace.run(analysisMarkerUpdater, eclipseResource, IWorkspace.AVOID_UPDATE, monitor.eclipseMonitor());
+
+        if(monitor.cancelled()) {
+            return;
+        }
+        if(live) {
+            editor.setLiveMessages(MessageType.ANALYSIS, liveMessages, snapshot);
+        } else {
+            editor.clearLiveMessages(MessageType.ANALYSIS);
+        }
     }
 }
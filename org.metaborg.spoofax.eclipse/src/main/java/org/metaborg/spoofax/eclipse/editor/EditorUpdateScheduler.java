@@ -0,0 +1,118 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.spoofax.eclipse.SpoofaxPreferences;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Derives editor update delays from moving averages of parse and analysis durations per language implementation, and
+ * of the typing rate per editor. Languages that parse or analyze faster than the user types are updated (almost)
+ * immediately, while expensive parses and analyses wait until the user pauses typing. Falls back to fixed delays for
+ * languages that have not been measured yet.
+ */
+public class EditorUpdateScheduler {
+    private static final ILogger logger = LoggerUtils.logger(EditorUpdateScheduler.class);
+
+    private static final long defaultDelayMillis = 300;
+    private static final long maxScheduleDelayMillis = 300;
+    private static final long maxMessagesDelayMillis = 300;
+    private static final long analysisDelayMillis = 500;
+    private static final long delayedAnalysisDelayMillis = 5000;
+    private static final double pauseFactor = 1.5;
+
+    private final SpoofaxPreferences preferences;
+
+    private final Map<LanguageIdentifier, Timings> timings = new ConcurrentHashMap<>();
+
+
+    @jakarta.inject.Inject public EditorUpdateScheduler(SpoofaxPreferences preferences) {
+        this.preferences = preferences;
+    }
+
+
+    /**
+     * Records the duration of parsing a file of given language.
+     */
+    public void parsed(ILanguageImpl language, long durationMillis) {
+        final Timings languageTimings = timings(language);
+        languageTimings.parse.add(durationMillis);
+        logger.trace("Parsed {} in {}ms, average {}", language, durationMillis, languageTimings.parse);
+    }
+
+    /**
+     * Records the duration of analyzing a file of given language.
+     */
+    public void analyzed(ILanguageImpl language, long durationMillis) {
+        final Timings languageTimings = timings(language);
+        languageTimings.analysis.add(durationMillis);
+        logger.trace("Analyzed {} in {}ms, average {}", language, durationMillis, languageTimings.analysis);
+    }
+
+
+    /**
+     * @return Delay in milliseconds before an editor update for given language should start after an edit. Parses that
+     *         are cheaper than the time between keystrokes start immediately, more expensive parses wait for a pause.
+     */
+    public long scheduleDelay(@Nullable ILanguageImpl language, TypingRate typingRate) {
+        final long parseMillis = language != null ? timings(language).parse.get(-1) : -1;
+        if(parseMillis < 0) {
+            return defaultDelayMillis;
+        }
+        return clamp(Math.min(parseMillis, pause(typingRate, parseMillis)), maxScheduleDelayMillis);
+    }
+
+    /**
+     * @return Delay in milliseconds before parse messages are shown, to prevent showing irrelevant messages while the
+     *         user is still typing.
+     */
+    public long messagesDelay(TypingRate typingRate) {
+        return clamp(pause(typingRate, defaultDelayMillis), maxMessagesDelayMillis);
+    }
+
+    /**
+     * @return Delay in milliseconds before analyzing a file of given language after an edit, bounded by the analysis
+     *         delay preference. Analyses that are more expensive than the time between keystrokes wait for a pause.
+     */
+    public long analysisDelay(ILanguageImpl language, TypingRate typingRate) {
+        final long maxDelayMillis = preferences.delayEditorAnalysis() ? delayedAnalysisDelayMillis : analysisDelayMillis;
+        final long analysisMillis = timings(language).analysis.get(-1);
+        if(analysisMillis < 0) {
+            return maxDelayMillis;
+        }
+        final long intervalMillis = typingRate.intervalMillis();
+        long delayMillis = analysisMillis;
+        if(intervalMillis >= 0 && analysisMillis > intervalMillis) {
+            delayMillis = Math.max(delayMillis, pause(typingRate, analysisMillis));
+        }
+        return clamp(delayMillis, maxDelayMillis);
+    }
+
+
+    private Timings timings(ILanguageImpl language) {
+        return timings.computeIfAbsent(language.id(), id -> new Timings());
+    }
+
+    private static long pause(TypingRate typingRate, long defaultMillis) {
+        final long intervalMillis = typingRate.intervalMillis();
+        if(intervalMillis < 0) {
+            return defaultMillis;
+        }
+        return Math.round(intervalMillis * pauseFactor);
+    }
+
+    private static long clamp(long millis, long maxMillis) {
+        return Math.max(0, Math.min(millis, maxMillis));
+    }
+
+
+    private static class Timings {
+        final MovingAverage parse = new MovingAverage(0.3);
+        final MovingAverage analysis = new MovingAverage(0.3);
+    }
+}
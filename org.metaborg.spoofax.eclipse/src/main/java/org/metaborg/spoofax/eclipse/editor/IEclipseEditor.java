@@ -10,6 +10,8 @@ import org.eclipse.jface.viewers.ISelectionProvider;
 import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.texteditor.ITextEditor;
 import org.metaborg.core.editor.IEditor;
+import org.metaborg.core.messages.IMessage;
+import org.metaborg.core.messages.MessageType;
 import org.metaborg.core.outline.IOutline;
 import org.metaborg.core.style.IRegionStyle;
 import org.metaborg.spoofax.eclipse.util.Nullable;
@@ -60,9 +62,23 @@ public interface IEclipseEditor<F> extends IEditor, ITextEditor {
 
 
     /**
-     * Sets the text styling, using given text and monitor for cancellation. Can be called from any thread.
+     * Sets the text styling, using given document snapshot and monitor for cancellation. Styling is not applied if the
+     * document was modified after the snapshot was taken. Can be called from any thread.
      */
-    void setStyle(Iterable<IRegionStyle<F>> style, String text, IProgressMonitor monitor);
+    void setStyle(Iterable<IRegionStyle<F>> style, DocumentSnapshot snapshot, IProgressMonitor monitor);
+
+    /**
+     * Shows messages of given type for the unsaved text of this editor as transient annotations, instead of as
+     * persistent markers. Messages are not shown if the document was modified after the snapshot was taken. Can be
+     * called from any thread.
+     */
+    void setLiveMessages(MessageType type, Iterable<IMessage> messages, DocumentSnapshot snapshot);
+
+    /**
+     * Removes transient annotations of given type, after persistent markers have been created for the saved text. Can
+     * be called from any thread.
+     */
+    void clearLiveMessages(MessageType type);
 
     /**
      * Sets the outline information, using given monitor for cancellation. Can be called from any thread.
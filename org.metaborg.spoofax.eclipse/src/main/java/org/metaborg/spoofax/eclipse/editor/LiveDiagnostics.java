@@ -0,0 +1,264 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.IAnnotationModel;
+import org.eclipse.jface.text.source.IAnnotationModelExtension;
+import org.eclipse.jface.text.source.IAnnotationModelListener;
+import org.eclipse.ui.texteditor.MarkerAnnotation;
+import org.metaborg.core.messages.IMessage;
+import org.metaborg.core.messages.MessageSeverity;
+import org.metaborg.core.messages.MessageType;
+import org.metaborg.core.source.ISourceRegion;
+import org.metaborg.spoofax.eclipse.util.MarkerReconciler;
+import org.metaborg.spoofax.eclipse.util.MarkerUtils;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+
+/**
+ * Shows parse and analysis messages for the unsaved text of an editor as transient annotations in the annotation model
+ * of the editor, instead of as persistent workspace markers. Updating annotations does not cause workspace operations,
+ * resource deltas, or marker persistence. Persistent markers of the same type are hidden while transient annotations
+ * are shown, and the transient messages are committed as persistent markers when the editor is saved. Internal markers
+ * are hidden while transient annotations of any type are shown. Hiding is re-applied whenever the annotation model
+ * changes, such that marker annotations that are added while transient annotations are shown are hidden as well.
+ *
+ * THREADING: all methods can be called from any thread.
+ */
+public class LiveDiagnostics {
+    private static final String errorType = "org.eclipse.ui.workbench.texteditor.error";
+    private static final String warningType = "org.eclipse.ui.workbench.texteditor.warning";
+    private static final String infoType = "org.eclipse.ui.workbench.texteditor.info";
+
+    private final Map<MessageType, Live> live = new EnumMap<>(MessageType.class);
+    private final IAnnotationModelListener modelListener = this::modelChanged;
+    private volatile Set<MessageType> liveTypes = Collections.emptySet();
+    private @Nullable IAnnotationModel model;
+
+
+    /**
+     * Shows given messages of given type as transient annotations, replacing transient annotations previously shown for
+     * that type, and hides persistent markers of that type. Messages are not shown if the document was modified after
+     * the snapshot was taken.
+     *
+     * @param annotationModel
+     *            Annotation model of the editor.
+     * @param document
+     *            Current document of the editor.
+     * @param type
+     *            Type of the messages, {@link MessageType#PARSER} or {@link MessageType#ANALYSIS}.
+     * @param messages
+     *            Messages to show.
+     * @param snapshot
+     *            Snapshot of the document that the messages were created for.
+     */
+    public synchronized void show(IAnnotationModel annotationModel, IDocument document, MessageType type,
+        Iterable<IMessage> messages, DocumentSnapshot snapshot) {
+        if(!snapshot.isCurrent(document)) {
+            return;
+        }
+        if(model != null && model != annotationModel) {
+            clear();
+        }
+        if(model == null) {
+            model = annotationModel;
+            annotationModel.addAnnotationModelListener(modelListener);
+        }
+
+        final Map<Annotation, Position> added = new HashMap<>();
+        final Collection<IMessage> shown = new ArrayList<>();
+        for(IMessage message : messages) {
+            added.put(new Annotation(annotationType(message.severity()), false, message.message()),
+                position(message));
+            shown.add(message);
+        }
+        final Live previous = live.put(type, new Live(shown, added.keySet(), snapshot));
+        liveTypes = EnumSet.copyOf(live.keySet());
+
+        updateMarkers(annotationModel, liveTypes);
+        replace(annotationModel, previous != null ? previous.annotations : null, added);
+    }
+
+    /**
+     * Removes transient annotations of given type, showing persistent markers of that type again.
+     */
+    public synchronized void clear(MessageType type) {
+        final IAnnotationModel annotationModel = model;
+        final Live previous = live.remove(type);
+        if(annotationModel == null || previous == null) {
+            return;
+        }
+        liveTypes = live.isEmpty() ? Collections.<MessageType>emptySet() : EnumSet.copyOf(live.keySet());
+        updateMarkers(annotationModel, liveTypes);
+        replace(annotationModel, previous.annotations, null);
+    }
+
+    /**
+     * Removes all transient annotations, showing all persistent markers again.
+     */
+    public synchronized void clear() {
+        for(MessageType type : new ArrayList<>(live.keySet())) {
+            clear(type);
+        }
+        if(model != null) {
+            model.removeAnnotationModelListener(modelListener);
+        }
+        model = null;
+    }
+
+    /**
+     * Records the transient messages that are still valid for given document as persistent markers of given resource.
+     *
+     * @return Types of the messages that were recorded, which should be cleared with {@link #clear(MessageType)} after
+     *         reconciling the markers.
+     */
+    public synchronized Collection<MessageType> commit(IDocument document, IResource resource,
+        MarkerReconciler markers) {
+        final Collection<MessageType> committed = new ArrayList<>();
+        for(Map.Entry<MessageType, Live> entry : live.entrySet()) {
+            final Live messages = entry.getValue();
+            if(!messages.snapshot.isCurrent(document)) {
+                // Messages are outdated, the next editor update will create markers for the saved text instead.
+                continue;
+            }
+            markers.clearInternal(resource);
+            if(entry.getKey() == MessageType.PARSER) {
+                markers.clearParser(resource);
+            } else {
+                markers.clearAnalysis(resource);
+            }
+            for(IMessage message : messages.messages) {
+                markers.add(resource, message);
+            }
+            committed.add(entry.getKey());
+        }
+        return committed;
+    }
+
+
+    /**
+     * Re-applies hiding of persistent markers after the annotation model changed, for example when marker annotations
+     * were added for markers that were created while transient annotations were shown. Does not synchronize on this
+     * object, since annotation models notify listeners while holding their own lock.
+     */
+    private void modelChanged(IAnnotationModel annotationModel) {
+        final Set<MessageType> types = liveTypes;
+        if(types.isEmpty()) {
+            return;
+        }
+        updateMarkers(annotationModel, types);
+    }
+
+    /**
+     * Hides persistent markers of given live message types, and internal markers if any type is live. Shows persistent
+     * parser and analysis markers of types that are not live, and internal markers if no type is live.
+     */
+    private static void updateMarkers(IAnnotationModel annotationModel, Set<MessageType> types) {
+        final String parserType = MarkerUtils.type(MessageType.PARSER);
+        final String analysisType = MarkerUtils.type(MessageType.ANALYSIS);
+        for(Iterator<?> iter = annotationModel.getAnnotationIterator(); iter.hasNext();) {
+            final Object annotation = iter.next();
+            if(!(annotation instanceof MarkerAnnotation)) {
+                continue;
+            }
+            final MarkerAnnotation markerAnnotation = (MarkerAnnotation) annotation;
+            final String annotationMarkerType = type(markerAnnotation.getMarker());
+            if(annotationMarkerType == null) {
+                continue;
+            }
+            final boolean deleted;
+            if(isInternal(annotationMarkerType)) {
+                deleted = !types.isEmpty();
+            } else if(annotationMarkerType.startsWith(parserType)) {
+                deleted = types.contains(MessageType.PARSER);
+            } else if(annotationMarkerType.startsWith(analysisType)) {
+                deleted = types.contains(MessageType.ANALYSIS);
+            } else {
+                continue;
+            }
+            if(markerAnnotation.isMarkedDeleted() != deleted) {
+                markerAnnotation.markDeleted(deleted);
+            }
+        }
+    }
+
+    private static @Nullable String type(IMarker marker) {
+        try {
+            return marker.exists() ? marker.getType() : null;
+        } catch(CoreException e) {
+            return null;
+        }
+    }
+
+    private static boolean isInternal(String markerType) {
+        return markerType.equals(MarkerUtils.type(MessageType.INTERNAL, MessageSeverity.ERROR))
+            || markerType.equals(MarkerUtils.type(MessageType.INTERNAL, MessageSeverity.WARNING))
+            || markerType.equals(MarkerUtils.type(MessageType.INTERNAL, MessageSeverity.NOTE));
+    }
+
+    private static void replace(IAnnotationModel annotationModel, @Nullable Collection<Annotation> removed,
+        @Nullable Map<Annotation, Position> added) {
+        final Annotation[] toRemove =
+            removed != null ? removed.toArray(new Annotation[removed.size()]) : new Annotation[0];
+        final Map<Annotation, Position> toAdd = added != null ? added : new HashMap<Annotation, Position>();
+        if(annotationModel instanceof IAnnotationModelExtension) {
+            // Replace in a single operation, which notifies listeners only once.
+            ((IAnnotationModelExtension) annotationModel).replaceAnnotations(toRemove, toAdd);
+            return;
+        }
+        for(Annotation annotation : toRemove) {
+            annotationModel.removeAnnotation(annotation);
+        }
+        for(Map.Entry<Annotation, Position> entry : toAdd.entrySet()) {
+            annotationModel.addAnnotation(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static String annotationType(MessageSeverity severity) {
+        switch(severity) {
+            case ERROR:
+                return errorType;
+            case WARNING:
+                return warningType;
+            case NOTE:
+            default:
+                return infoType;
+        }
+    }
+
+    private static Position position(IMessage message) {
+        final ISourceRegion region = message.region();
+        if(region == null) {
+            return new Position(0, 0);
+        }
+        return new Position(region.startOffset(), region.endOffset() - region.startOffset() + 1);
+    }
+
+
+    private static class Live {
+        final Collection<IMessage> messages;
+        final List<Annotation> annotations;
+        final DocumentSnapshot snapshot;
+
+
+        Live(Collection<IMessage> messages, Collection<Annotation> annotations, DocumentSnapshot snapshot) {
+            this.messages = messages;
+            this.annotations = new ArrayList<>(annotations);
+            this.snapshot = snapshot;
+        }
+    }
+}
@@ -3,15 +3,18 @@ package org.metaborg.spoofax.eclipse.editor;
 import java.awt.Color;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.vfs2.FileObject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.jobs.IJobManager;
-import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.core.runtime.jobs.Job;
-import org.eclipse.core.runtime.jobs.MultiRule;
 import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentListener;
@@ -19,6 +22,7 @@ import org.eclipse.jface.text.ITextOperationTarget;
 import org.eclipse.jface.text.ITextViewerExtension4;
 import org.eclipse.jface.text.TextPresentation;
 import org.eclipse.jface.text.source.DefaultCharacterPairMatcher;
+import org.eclipse.jface.text.source.IAnnotationModel;
 import org.eclipse.jface.text.source.ICharacterPairMatcher;
 import org.eclipse.jface.text.source.ISourceViewer;
 import org.eclipse.jface.text.source.ISourceViewerExtension2;
@@ -39,6 +43,8 @@ import org.metaborg.core.analysis.IAnalyzeUnitUpdate;
 import org.metaborg.core.context.IContextService;
 import org.metaborg.core.language.ILanguageIdentifierService;
 import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.messages.IMessage;
+import org.metaborg.core.messages.MessageType;
 import org.metaborg.core.outline.IOutline;
 import org.metaborg.core.outline.IOutlineService;
 import org.metaborg.core.processing.analyze.IAnalysisResultProcessor;
@@ -59,9 +65,12 @@ import org.metaborg.spoofax.eclipse.SpoofaxPlugin;
 import org.metaborg.spoofax.eclipse.SpoofaxPreferences;
 import org.metaborg.spoofax.eclipse.editor.outline.SpoofaxOutlinePage;
 import org.metaborg.spoofax.eclipse.editor.outline.SpoofaxOutlinePopup;
+import org.metaborg.spoofax.eclipse.job.CancellationMetrics;
 import org.metaborg.spoofax.eclipse.job.GlobalSchedulingRules;
 import org.metaborg.spoofax.eclipse.resource.IEclipseResourceService;
+import org.metaborg.spoofax.eclipse.util.MarkerReconciler;
 import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.spoofax.eclipse.util.StatusUtils;
 import org.metaborg.spoofax.eclipse.util.StyleUtils;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
@@ -90,11 +99,19 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
 
     protected GlobalSchedulingRules globalRules;
     protected SpoofaxPreferences preferences;
+    protected EditorUpdateScheduler updateScheduler;
+    protected CancellationMetrics cancellationMetrics;
 
     protected IJobManager jobManager;
 
     protected final IPropertyListener editorInputChangedListener;
     protected final PresentationMerger presentationMerger;
+    protected final PresentationDiffer presentationDiffer;
+    protected final ViewportTracker viewportTracker;
+    protected final ViewportStyler viewportStyler;
+    protected final LiveDiagnostics liveDiagnostics;
+    protected final TypingRate typingRate;
+    protected final AtomicLong updateGeneration;
     protected final SpoofaxOutlinePage outlinePage;
     protected SpoofaxOutlinePopup outlinePopup;
 
@@ -120,6 +137,12 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
 
         this.editorInputChangedListener = new EditorInputChangedListener();
         this.presentationMerger = new PresentationMerger();
+        this.presentationDiffer = new PresentationDiffer();
+        this.viewportTracker = new ViewportTracker();
+        this.viewportStyler = new ViewportStyler(viewportTracker);
+        this.liveDiagnostics = new LiveDiagnostics();
+        this.typingRate = new TypingRate();
+        this.updateGeneration = new AtomicLong();
         this.outlinePage = new SpoofaxOutlinePage(this);
     }
 
@@ -166,6 +189,7 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         presentationMerger.invalidate();
         display.asyncExec(new Runnable() {
             @Override public void run() {
+                presentationDiffer.invalidate();
                 sourceViewer.changeTextPresentation(blackPresentation, true);
             }
         });
@@ -194,6 +218,8 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         final Display display = Display.getDefault();
         display.asyncExec(new Runnable() {
             @Override public void run() {
+                // Reconfiguring the source viewer may change its presentation, repaint fully on the next update.
+                presentationDiffer.invalidate();
                 sourceViewerExt2.unconfigure();
                 setSourceViewerConfiguration(createSourceViewerConfiguration());
                 sourceViewer.configure(getSourceViewerConfiguration());
@@ -257,11 +283,31 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
     }
 
 
-    @Override public void setStyle(Iterable<IRegionStyle<F>> style, final String text, final IProgressMonitor monitor) {
+    @Override public void setStyle(Iterable<IRegionStyle<F>> style, final DocumentSnapshot snapshot,
+        final IProgressMonitor monitor) {
         final Display display = Display.getDefault();
+        final String text = snapshot.text();
 
-        final TextPresentation textPresentation = StyleUtils.createTextPresentation(style, display);
-        presentationMerger.set(textPresentation);
+        Iterable<IRegionStyle<F>> regionStyles = style;
+        if(text != null && !presentationDiffer.hasApplied()) {
+            final List<IRegionStyle<F>> styles = new ArrayList<>();
+            for(IRegionStyle<F> regionStyle : style) {
+                styles.add(regionStyle);
+            }
+            if(styles.size() >= ViewportStyler.threshold) {
+                // Nothing has been painted yet and the document is large, paint the visible part first.
+                setStyleViewportFirst(styles, text.length(), snapshot, display, monitor);
+                return;
+            }
+            regionStyles = styles;
+        }
+
+        final TextPresentation textPresentation = StyleUtils.createTextPresentation(regionStyles, display);
+        final StyleRanges styleRanges = StyleRanges.copyOf(textPresentation);
+        presentationMerger.set(textPresentation, styleRanges);
+        // Compute which region of the presentation changed off the main thread, to only repaint that region.
+        final PresentationDiffer.Update update =
+            presentationDiffer.diff(textPresentation, styleRanges, text != null ? text.length() : -1);
 
         // Update styling on the main thread, required by Eclipse.
         display.asyncExec(new Runnable() {
@@ -269,14 +315,62 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
                 if(monitor.isCanceled())
                     return;
                 // Also cancel if text presentation is not valid for current text any more.
-                if(document == null || !document.get().equals(text)) {
+                if(!snapshot.isCurrent(document)) {
                     return;
                 }
-                sourceViewer.changeTextPresentation(textPresentation, true);
+                final TextPresentation changedPresentation = presentationDiffer.apply(update);
+                if(changedPresentation != null) {
+                    sourceViewer.changeTextPresentation(changedPresentation, true);
+                }
+            }
+        });
+    }
+
+    private void setStyleViewportFirst(List<IRegionStyle<F>> styles, int documentLength,
+        final DocumentSnapshot snapshot, Display display, final IProgressMonitor monitor) {
+        final TextPresentation textPresentation =
+            viewportStyler.style(styles, documentLength, display, monitor, chunkPresentation -> {
+                // Update styling on the main thread, required by Eclipse.
+                display.asyncExec(() -> {
+                    if(monitor.isCanceled() || !snapshot.isCurrent(document)) {
+                        return;
+                    }
+                    sourceViewer.changeTextPresentation(chunkPresentation, true);
+                });
+            });
+        if(textPresentation == null) {
+            return;
+        }
+        final StyleRanges styleRanges = StyleRanges.copyOf(textPresentation);
+        presentationMerger.set(textPresentation, styleRanges);
+        final PresentationDiffer.Update update = presentationDiffer.diff(textPresentation, styleRanges, documentLength);
+
+        display.asyncExec(() -> {
+            if(monitor.isCanceled() || !snapshot.isCurrent(document)) {
+                return;
             }
+            // All chunks have been painted, only record the full presentation as the base for the next update.
+            presentationDiffer.applied(update);
         });
     }
 
+    @Override public void setLiveMessages(MessageType type, Iterable<IMessage> messages, DocumentSnapshot snapshot) {
+        final IEditorInput currentInput = input;
+        final IDocument currentDocument = document;
+        if(currentInput == null || currentDocument == null) {
+            return;
+        }
+        final IAnnotationModel annotationModel = getDocumentProvider().getAnnotationModel(currentInput);
+        if(annotationModel == null) {
+            return;
+        }
+        liveDiagnostics.show(annotationModel, currentDocument, type, messages, snapshot);
+    }
+
+    @Override public void clearLiveMessages(MessageType type) {
+        liveDiagnostics.clear(type);
+    }
+
     @Override public void setOutline(final IOutline outline, final IProgressMonitor monitor) {
         final Display display = Display.getDefault();
 
@@ -320,7 +414,8 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         this.projectService = injector.getInstance(IProjectService.class);
         this.globalRules = injector.getInstance(GlobalSchedulingRules.class);
         this.preferences = injector.getInstance(SpoofaxPreferences.class);
-
+        this.updateScheduler = injector.getInstance(EditorUpdateScheduler.class);
+        this.cancellationMetrics = injector.getInstance(CancellationMetrics.class);
     }
 
     protected abstract void injectGenericServices(Injector injectors);
@@ -368,6 +463,9 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         // sources, such as marker annotations.
         textViewerExt4.addTextPresentationListener(presentationMerger);
 
+        // Track the visible range of the document, to style visible parts of large documents first.
+        viewportTracker.install(sourceViewer);
+
         // Create quick outline control.
         this.outlinePopup = new SpoofaxOutlinePopup(getSite().getShell(), this);
 
@@ -404,8 +502,15 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         EditorPreferences.setPairMatcherKeys(support);
     }
 
+    @Override protected void editorSaved() {
+        super.editorSaved();
+        commitLiveMessages();
+    }
+
     @Override public void dispose() {
+        updateGeneration.incrementAndGet();
         cancelJobs(input);
+        liveDiagnostics.clear();
 
         if(documentListener != null) {
             document.removeDocumentListener(documentListener);
@@ -414,6 +519,7 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         if(textViewerExt4 != null) {
             textViewerExt4.removeTextPresentationListener(presentationMerger);
         }
+        viewportTracker.uninstall();
 
         input = null;
         inputName = null;
@@ -453,6 +559,9 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
             return;
         }
 
+        // Mark stages of previous updates as stale before cancelling them, such that stages that are about to be
+        // scheduled by a running previous update will not run.
+        updateGeneration.incrementAndGet();
         cancelJobs(input);
 
         // THREADING: invalidate text styling here on the main thread (instead of in the editor update job), to prevent
@@ -463,23 +572,13 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
             analysisResultProcessor.invalidate(resource);
         }
 
-        final long analysisDelayMs = preferences.delayEditorAnalysis() ? 5000 : 500;
         final boolean analysis = !preferences.disableEditorAnalysis();
         final Job job = new EditorUpdateJob<>(resourceService, languageIdentifier, contextService, projectService,
             unitService, syntaxService, analysisService, categorizerService, stylerService, outlineService,
-            parseResultProcessor, analysisResultProcessor, analysisResultRequester, this, input, eclipseResource, resource, document.get(),
-            changed, instantaneous, analysisDelayMs, analysis);
-        final ISchedulingRule rule;
-        if(eclipseResource == null) {
-            rule = new MultiRule(new ISchedulingRule[] { globalRules.startupReadLock() });
-        } else if(!analysis) {
-            rule = new MultiRule(new ISchedulingRule[] { globalRules.startupReadLock(), eclipseResource });
-        } else {
-            rule = new MultiRule(new ISchedulingRule[] { globalRules.startupReadLock(), globalRules.strategoLock(),
-                eclipseResource.getProject() });
-        }
-        job.setRule(rule);
-        job.schedule(instantaneous ? 0 : 300);
+            parseResultProcessor, analysisResultProcessor, analysisResultRequester, this, input, eclipseResource, resource,
+            new DocumentSnapshot(document), changed, instantaneous, updateScheduler, typingRate, analysis, globalRules, updateGeneration,
+            cancellationMetrics);
+        job.schedule(instantaneous ? 0 : updateScheduler.scheduleDelay(language, typingRate));
     }
 
     private void cancelJobs(IEditorInput specificInput) {
@@ -490,6 +589,35 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         }
     }
 
+    private void commitLiveMessages() {
+        final IResource currentResource = eclipseResource;
+        final IDocument currentDocument = document;
+        if(currentResource == null || currentDocument == null) {
+            return;
+        }
+        final MarkerReconciler markers = new MarkerReconciler();
+        final Collection<MessageType> committed = liveDiagnostics.commit(currentDocument, currentResource, markers);
+        if(committed.isEmpty()) {
+            return;
+        }
+
+        // Create persistent markers for the saved text in a job, to not block the main thread on workspace operations.
+        final Job job = new WorkspaceJob("Creating markers for " + inputName) {
+            @Override public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
+                markers.reconcile();
+                if(!isDirty()) {
+                    for(MessageType type : committed) {
+                        liveDiagnostics.clear(type);
+                    }
+                }
+                return StatusUtils.success();
+            }
+        };
+        job.setRule(currentResource);
+        job.setSystem(true);
+        job.schedule();
+    }
+
     private void editorInputChanged() {
         final IEditorInput oldInput = input;
         final IDocument oldDocument = document;
@@ -505,6 +633,8 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         document = getDocumentProvider().getDocument(input);
         documentListener = new DocumentListener();
         document.addDocumentListener(documentListener);
+        liveDiagnostics.clear();
+        presentationDiffer.invalidate();
 
         // Store new resource, because these may have changed as a result of the input change.
         resource = resourceService.resolve(input);
@@ -529,6 +659,7 @@ public abstract class MetaBorgEditor<I extends IInputUnit, P extends IParseUnit,
         }
 
         @Override public void documentChanged(DocumentEvent event) {
+            typingRate.edit();
             scheduleJob(false, true);
         }
     }
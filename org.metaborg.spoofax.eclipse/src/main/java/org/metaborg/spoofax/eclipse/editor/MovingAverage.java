@@ -0,0 +1,52 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+/**
+ * Exponentially weighted moving average of durations or intervals, in milliseconds. Thread-safe.
+ */
+public class MovingAverage {
+    private final double weight;
+
+    private double average;
+    private long samples = 0;
+
+
+    /**
+     * @param weight
+     *            Weight of new samples, between 0 and 1. Higher weights adapt faster to changes.
+     */
+    public MovingAverage(double weight) {
+        this.weight = weight;
+    }
+
+
+    public synchronized void add(long sample) {
+        if(samples == 0) {
+            average = sample;
+        } else {
+            average = weight * sample + (1 - weight) * average;
+        }
+        ++samples;
+    }
+
+    /**
+     * @return True if at least one sample has been added, false otherwise.
+     */
+    public synchronized boolean hasSamples() {
+        return samples > 0;
+    }
+
+    /**
+     * @return Current average, or given default value if no samples have been added.
+     */
+    public synchronized long get(long defaultValue) {
+        if(samples == 0) {
+            return defaultValue;
+        }
+        return Math.round(average);
+    }
+
+
+    @Override public synchronized String toString() {
+        return samples == 0 ? "-" : Math.round(average) + "ms";
+    }
+}
@@ -0,0 +1,149 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+import org.eclipse.jface.text.TextPresentation;
+import org.eclipse.swt.custom.StyleRange;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+
+/**
+ * Keeps track of the style ranges that were last applied to a source viewer, and computes the smallest region in which
+ * a new text presentation differs from them, such that only that region needs to be repainted.
+ *
+ * Style ranges that were applied before an edit are shifted by the text widget itself. Therefore, new style ranges are
+ * compared to the previously applied ones from the start of the document, and from the end of the document taking the
+ * change in document length into account. Only the region between the common prefix and common suffix is damaged.
+ *
+ * THREADING: {@link #diff} can be called from any thread, {@link #apply} and {@link #invalidate} must be called from
+ * the UI thread.
+ */
+public class PresentationDiffer {
+    private volatile @Nullable Applied applied;
+
+
+    /**
+     * Computes the difference between given presentation and the last applied presentation.
+     *
+     * @param presentation
+     *            New text presentation.
+     * @param copies
+     *            Immutable copy of the style ranges of the new text presentation.
+     * @param documentLength
+     *            Length of the document that the presentation was created for, or -1 if unknown.
+     * @return Update that can be applied with {@link #apply}.
+     */
+    public Update diff(TextPresentation presentation, StyleRanges copies, int documentLength) {
+        final Applied next = new Applied(copies, documentLength);
+        final Applied base = applied;
+        if(base == null || base.documentLength < 0 || documentLength < 0) {
+            return new Update(base, next, presentation, presentation);
+        }
+
+        final StyleRanges oldRanges = base.ranges;
+        final int oldSize = oldRanges.size();
+        final int size = copies.size();
+        final int shift = documentLength - base.documentLength;
+        final int max = Math.min(oldSize, size);
+        int prefix = 0;
+        while(prefix < max && oldRanges.same(prefix, copies, prefix, 0)) {
+            ++prefix;
+        }
+        int suffix = 0;
+        while(suffix < max - prefix && oldRanges.same(oldSize - 1 - suffix, copies, size - 1 - suffix, shift)) {
+            ++suffix;
+        }
+        if(shift == 0 && prefix == oldSize && prefix == size) {
+            // Styling did not change at all, nothing needs to be repainted.
+            return new Update(base, next, presentation, null);
+        }
+
+        final int start = prefix > 0 ? copies.end(prefix - 1) : 0;
+        final int end = suffix > 0 ? copies.start(size - suffix) : documentLength;
+        if(end <= start) {
+            // Only unstyled text changed, which the text widget already shifted correctly.
+            return new Update(base, next, presentation, null);
+        }
+
+        final TextPresentation damaged = new TextPresentation(size - prefix - suffix + 1);
+        final StyleRange defaultStyleRange = presentation.getDefaultStyleRange();
+        if(defaultStyleRange != null) {
+            final StyleRange damagedDefault = (StyleRange) defaultStyleRange.clone();
+            damagedDefault.start = start;
+            damagedDefault.length = end - start;
+            damaged.setDefaultStyleRange(damagedDefault);
+        }
+        for(int i = prefix; i < size - suffix; ++i) {
+            damaged.addStyleRange(copies.copy(i));
+        }
+        return new Update(base, next, presentation, damaged);
+    }
+
+    /**
+     * Records given update as applied, and returns the presentation that must be applied to the source viewer. If a
+     * different presentation was applied after the update was computed, the full presentation is returned.
+     *
+     * @return Presentation to apply, or null if nothing needs to be repainted.
+     */
+    public @Nullable TextPresentation apply(Update update) {
+        final Applied base = applied;
+        applied = update.next;
+        if(base != update.base) {
+            return update.full;
+        }
+        return update.damaged;
+    }
+
+    /**
+     * Records given update as applied, without repainting. Used when the full presentation of the update was already
+     * painted by other means, for example in chunks.
+     */
+    public void applied(Update update) {
+        applied = update.next;
+    }
+
+    /**
+     * @return True if a presentation has been applied since the last invalidation, such that the next update only
+     *         repaints the changed region.
+     */
+    public boolean hasApplied() {
+        return applied != null;
+    }
+
+    /**
+     * Forgets the last applied presentation, forcing the next update to repaint the full presentation. Must be called
+     * when the presentation of the source viewer was changed by other means.
+     */
+    public void invalidate() {
+        applied = null;
+    }
+
+
+    private static class Applied {
+        final StyleRanges ranges;
+        final int documentLength;
+
+
+        Applied(StyleRanges ranges, int documentLength) {
+            this.ranges = ranges;
+            this.documentLength = documentLength;
+        }
+    }
+
+    /**
+     * Difference between a new text presentation and the presentation that was last applied when the difference was
+     * computed.
+     */
+    public static class Update {
+        private final @Nullable Applied base;
+        private final Applied next;
+        private final TextPresentation full;
+        private final @Nullable TextPresentation damaged;
+
+
+        private Update(@Nullable Applied base, Applied next, TextPresentation full,
+            @Nullable TextPresentation damaged) {
+            this.base = base;
+            this.next = next;
+            this.full = full;
+            this.damaged = damaged;
+        }
+    }
+}
@@ -1,21 +1,20 @@
 package org.metaborg.spoofax.eclipse.editor;
 
-import java.util.Collection;
-
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextPresentationListener;
 import org.eclipse.jface.text.TextPresentation;
-import org.eclipse.swt.custom.StyleRange;
-import org.metaborg.spoofax.eclipse.util.StyleUtils;
 
 public class PresentationMerger implements ITextPresentationListener {
     private volatile TextPresentation sourcePresentation;
-    private volatile Collection<StyleRange> styleRanges;
+    private volatile StyleRanges styleRanges;
 
 
-    public void set(TextPresentation presentation) {
-        // Make a deep copy of style ranges to prevent sharing with other ITextPresentationListeners.
-        styleRanges = StyleUtils.deepCopies(presentation);
+    /**
+     * Sets the presentation to merge into presentations from other sources, with an immutable copy of its style ranges
+     * to prevent sharing with other ITextPresentationListeners.
+     */
+    public void set(TextPresentation presentation, StyleRanges ranges) {
+        styleRanges = ranges;
         sourcePresentation = presentation;
     }
 
@@ -26,21 +25,23 @@ public class PresentationMerger implements ITextPresentationListener {
 
 
     @Override public void applyTextPresentation(TextPresentation targetPresentation) {
+        final TextPresentation source = sourcePresentation;
+        final StyleRanges ranges = styleRanges;
         // No need to apply text presentation if source and target presentation are the same object.
-        if(sourcePresentation == null || targetPresentation == sourcePresentation) {
+        if(source == null || ranges == null || targetPresentation == source) {
             return;
         }
 
         final IRegion extent = targetPresentation.getExtent();
         final int min = extent.getOffset();
         final int max = min + extent.getLength();
-        for(StyleRange styleRange : styleRanges) {
-            final int styleRangeEnd = styleRange.start + styleRange.length;
+        // Style ranges are sorted and do not overlap, only visit the ones that intersect with the extent.
+        for(int i = ranges.firstEndingAfter(min); i < ranges.size() && ranges.start(i) < max; ++i) {
             // Not allowed to change style ranges outside of extent. Safe to skip since they will not be redrawn.
-            if(styleRange.start < min || styleRangeEnd > max) {
+            if(ranges.start(i) < min || ranges.end(i) > max) {
                 continue;
             }
-            targetPresentation.mergeStyleRange(styleRange);
+            targetPresentation.mergeStyleRange(ranges.copy(i));
         }
     }
 }
@@ -0,0 +1,102 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.jface.text.TextPresentation;
+import org.eclipse.swt.custom.StyleRange;
+import org.metaborg.spoofax.eclipse.util.StyleUtils;
+
+/**
+ * Immutable, sorted copy of the style ranges of a text presentation. Offsets are stored in primitive arrays, such that
+ * the style ranges in a region can be found with a binary search.
+ *
+ * The style ranges are copied once on creation and never handed out to text presentations, since text presentation
+ * listeners may modify style ranges of the presentations they receive. Therefore a single instance can be shared
+ * between threads, and between the {@link PresentationMerger} and {@link PresentationDiffer}. Style ranges that need to
+ * be added to a text presentation must be copied with {@link #copy(int)}.
+ */
+public class StyleRanges {
+    private final int[] starts;
+    private final int[] ends;
+    private final StyleRange[] ranges;
+
+
+    private StyleRanges(StyleRange[] ranges) {
+        this.ranges = ranges;
+        this.starts = new int[ranges.length];
+        this.ends = new int[ranges.length];
+        for(int i = 0; i < ranges.length; ++i) {
+            starts[i] = ranges[i].start;
+            ends[i] = ranges[i].start + ranges[i].length;
+        }
+    }
+
+    /**
+     * Creates a copy of the non-default style ranges of given text presentation.
+     */
+    public static StyleRanges copyOf(TextPresentation presentation) {
+        final List<StyleRange> ranges = new ArrayList<>();
+        for(Iterator<StyleRange> iter = presentation.getNonDefaultStyleRangeIterator(); iter.hasNext();) {
+            ranges.add(StyleUtils.deepCopy(iter.next()));
+        }
+        return new StyleRanges(ranges.toArray(new StyleRange[ranges.size()]));
+    }
+
+
+    /**
+     * @return Number of style ranges.
+     */
+    public int size() {
+        return ranges.length;
+    }
+
+    /**
+     * @return Start offset of style range at given index.
+     */
+    public int start(int index) {
+        return starts[index];
+    }
+
+    /**
+     * @return End offset (exclusive) of style range at given index.
+     */
+    public int end(int index) {
+        return ends[index];
+    }
+
+    /**
+     * @return Copy of style range at given index, which may be added to a text presentation.
+     */
+    public StyleRange copy(int index) {
+        return StyleUtils.deepCopy(ranges[index]);
+    }
+
+    /**
+     * @return True if style range at given index in this instance has the same style as the style range at given
+     *         index in given instance, and the same position after shifting it by given amount.
+     */
+    public boolean same(int index, StyleRanges other, int otherIndex, int shift) {
+        return starts[index] + shift == other.starts[otherIndex] && ends[index] + shift == other.ends[otherIndex]
+            && ranges[index].similarTo(other.ranges[otherIndex]);
+    }
+
+    /**
+     * @return Index of the first style range that ends after given offset, or {@link #size()} if there is no such style
+     *         range.
+     */
+    public int firstEndingAfter(int offset) {
+        int low = 0;
+        int high = ends.length;
+        while(low < high) {
+            final int mid = (low + high) >>> 1;
+            if(ends[mid] <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
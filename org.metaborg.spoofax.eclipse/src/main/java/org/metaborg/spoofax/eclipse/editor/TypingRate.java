@@ -0,0 +1,41 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+/**
+ * Tracks the typing rate in a single editor, as a moving average of the interval between consecutive edits. Intervals
+ * that are long enough to be considered a pause are not counted as typing.
+ */
+public class TypingRate {
+    private static final long pauseMillis = 2000;
+
+    private final MovingAverage interval = new MovingAverage(0.3);
+    private volatile long lastEdit = 0;
+
+
+    /**
+     * Records an edit made at the current time. Must be called from a single thread, typically the UI thread.
+     */
+    public void edit() {
+        final long now = System.currentTimeMillis();
+        final long previous = lastEdit;
+        lastEdit = now;
+        if(previous == 0) {
+            return;
+        }
+        final long elapsed = now - previous;
+        if(elapsed < pauseMillis) {
+            interval.add(elapsed);
+        }
+    }
+
+    /**
+     * @return Average interval between edits while typing in milliseconds, or -1 if unknown.
+     */
+    public long intervalMillis() {
+        return interval.get(-1);
+    }
+
+
+    @Override public String toString() {
+        return interval.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jface.text.TextPresentation;
+import org.eclipse.swt.custom.StyleRange;
+import org.eclipse.swt.widgets.Display;
+import org.metaborg.core.style.IRegionStyle;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.spoofax.eclipse.util.StyleUtils;
+
+/**
+ * Creates the text presentation of large documents in chunks of style regions, starting with the chunks that are
+ * visible in the viewport. Each chunk is painted as soon as it is created, such that the visible part of a document is
+ * colored after a constant amount of work, independent of the size of the document. The remaining chunks are created
+ * in the background, preferring chunks that become visible while scrolling.
+ */
+public class ViewportStyler {
+    /**
+     * Minimum number of style regions for which styling in chunks is worthwhile.
+     */
+    public static final int threshold = 10000;
+
+    private static final int chunkSize = 2000;
+
+    private final ViewportTracker viewport;
+
+
+    public ViewportStyler(ViewportTracker viewport) {
+        this.viewport = viewport;
+    }
+
+
+    /**
+     * Creates the text presentation for given style regions in chunks, starting with the visible chunks.
+     *
+     * @param styles
+     *            Style regions, ordered by offset.
+     * @param documentLength
+     *            Length of the document that is being styled.
+     * @param display
+     *            Display to create style ranges on.
+     * @param monitor
+     *            Monitor for cancellation.
+     * @param painter
+     *            Called with the presentation of every chunk directly after it has been created. Receives copies of
+     *            the style ranges, which may be modified while painting.
+     * @return Full text presentation, or null if styling was cancelled.
+     */
+    public <F> @Nullable TextPresentation style(List<IRegionStyle<F>> styles, int documentLength, Display display,
+        IProgressMonitor monitor, Consumer<TextPresentation> painter) {
+        final int chunkCount = (styles.size() + chunkSize - 1) / chunkSize;
+        final int[] chunkOffsets = new int[chunkCount + 1];
+        for(int chunk = 1; chunk < chunkCount; ++chunk) {
+            chunkOffsets[chunk] = styles.get(chunk * chunkSize).region().startOffset();
+        }
+        chunkOffsets[chunkCount] = documentLength;
+        final StyleRange[] ranges = new StyleRange[styles.size()];
+        final boolean[] styled = new boolean[chunkCount];
+
+        // First pass: the visible chunks, including a margin of one viewport above and below.
+        int visibleStart = Math.max(viewport.start(), 0);
+        int visibleEnd = Math.max(viewport.end(), visibleStart);
+        final int margin = visibleEnd - visibleStart;
+        final int first = chunk(chunkOffsets, visibleStart - margin);
+        final int last = chunk(chunkOffsets, visibleEnd + margin);
+        paint(styles, ranges, styled, chunkOffsets, first, last, display, painter);
+
+        // Second pass: the remaining chunks, moving away from the initially visible chunks.
+        int forward = last + 1;
+        int backward = first - 1;
+        while(true) {
+            if(monitor.isCanceled()) {
+                return null;
+            }
+            // Promote chunks that became visible by scrolling.
+            visibleStart = viewport.start();
+            visibleEnd = viewport.end();
+            int next = -1;
+            if(visibleStart >= 0) {
+                for(int chunk = chunk(chunkOffsets, visibleStart); chunk <= chunk(chunkOffsets, visibleEnd); ++chunk) {
+                    if(!styled[chunk]) {
+                        next = chunk;
+                        break;
+                    }
+                }
+            }
+            if(next < 0) {
+                while(forward < chunkCount && styled[forward]) {
+                    ++forward;
+                }
+                while(backward >= 0 && styled[backward]) {
+                    --backward;
+                }
+                if(forward < chunkCount) {
+                    next = forward;
+                } else if(backward >= 0) {
+                    next = backward;
+                } else {
+                    break;
+                }
+            }
+            paint(styles, ranges, styled, chunkOffsets, next, next, display, painter);
+        }
+
+        final TextPresentation presentation = new TextPresentation(ranges.length);
+        for(StyleRange range : ranges) {
+            presentation.addStyleRange(range);
+        }
+        presentation.setDefaultStyleRange(defaultStyleRange(0, documentLength, display));
+        return presentation;
+    }
+
+
+    private static <F> void paint(List<IRegionStyle<F>> styles, StyleRange[] ranges, boolean[] styled,
+        int[] chunkOffsets, int first, int last, Display display, Consumer<TextPresentation> painter) {
+        final int startIndex = first * chunkSize;
+        final int endIndex = Math.min((last + 1) * chunkSize, styles.size());
+        final TextPresentation presentation = new TextPresentation(endIndex - startIndex);
+        for(int i = startIndex; i < endIndex; ++i) {
+            final StyleRange range = StyleUtils.createStyleRange(styles.get(i), display);
+            ranges[i] = range;
+            presentation.addStyleRange(StyleUtils.deepCopy(range));
+        }
+        presentation.setDefaultStyleRange(defaultStyleRange(chunkOffsets[first], chunkOffsets[last + 1], display));
+        for(int chunk = first; chunk <= last; ++chunk) {
+            styled[chunk] = true;
+        }
+        painter.accept(presentation);
+    }
+
+    /**
+     * @return Index of the chunk that contains given offset.
+     */
+    private static int chunk(int[] chunkOffsets, int offset) {
+        int low = 0;
+        int high = chunkOffsets.length - 2;
+        while(low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if(chunkOffsets[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private static StyleRange defaultStyleRange(int start, int end, Display display) {
+        final StyleRange defaultStyleRange = new StyleRange();
+        defaultStyleRange.start = start;
+        defaultStyleRange.length = end - start;
+        defaultStyleRange.foreground = StyleUtils.createColor(java.awt.Color.BLACK, display);
+        return defaultStyleRange;
+    }
+}
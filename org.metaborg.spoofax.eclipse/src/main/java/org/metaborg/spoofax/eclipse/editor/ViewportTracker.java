@@ -0,0 +1,95 @@
+package org.metaborg.spoofax.eclipse.editor;
+
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.IViewportListener;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.events.ControlEvent;
+import org.eclipse.swt.events.ControlListener;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+
+/**
+ * Tracks the range of document offsets that is visible in a text viewer, such that the visible range can be queried
+ * from any thread.
+ *
+ * THREADING: {@link #install} and {@link #uninstall} must be called from the UI thread, {@link #start} and
+ * {@link #end} can be called from any thread.
+ */
+public class ViewportTracker implements IViewportListener, ControlListener {
+    private @Nullable ITextViewer viewer;
+    private volatile int start = -1;
+    private volatile int end = -1;
+
+
+    /**
+     * Starts tracking the visible range of given text viewer.
+     */
+    public void install(ITextViewer textViewer) {
+        viewer = textViewer;
+        textViewer.addViewportListener(this);
+        final StyledText textWidget = textViewer.getTextWidget();
+        if(textWidget != null) {
+            textWidget.addControlListener(this);
+        }
+        update();
+    }
+
+    /**
+     * Stops tracking the visible range.
+     */
+    public void uninstall() {
+        final ITextViewer textViewer = viewer;
+        if(textViewer == null) {
+            return;
+        }
+        textViewer.removeViewportListener(this);
+        final StyledText textWidget = textViewer.getTextWidget();
+        if(textWidget != null && !textWidget.isDisposed()) {
+            textWidget.removeControlListener(this);
+        }
+        viewer = null;
+        start = -1;
+        end = -1;
+    }
+
+
+    /**
+     * @return Document offset of the first visible character, or -1 if unknown.
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * @return Document offset of the last visible character, or -1 if unknown.
+     */
+    public int end() {
+        return end;
+    }
+
+
+    @Override public void viewportChanged(int verticalOffset) {
+        update();
+    }
+
+    @Override public void controlResized(ControlEvent e) {
+        update();
+    }
+
+    @Override public void controlMoved(ControlEvent e) {
+    }
+
+
+    private void update() {
+        final ITextViewer textViewer = viewer;
+        if(textViewer == null || textViewer.getDocument() == null) {
+            return;
+        }
+        final int topOffset = textViewer.getTopIndexStartOffset();
+        final int bottomOffset = textViewer.getBottomIndexEndOffset();
+        if(topOffset < 0 || bottomOffset < topOffset) {
+            return;
+        }
+        start = topOffset;
+        end = bottomOffset;
+    }
+}
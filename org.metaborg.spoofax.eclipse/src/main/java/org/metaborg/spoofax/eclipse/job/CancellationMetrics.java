@@ -0,0 +1,69 @@
+package org.metaborg.spoofax.eclipse.job;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Collects metrics on how long it takes jobs to honour cancellation requests, per kind of job.
+ */
+public class CancellationMetrics {
+    private static final ILogger logger = LoggerUtils.logger(CancellationMetrics.class);
+    private static final long slowMillis = 1000;
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+
+    /**
+     * Records that a job of given kind honoured a cancellation request after given time.
+     */
+    public void record(String kind, long latencyMillis) {
+        final Stats kindStats = stats.computeIfAbsent(kind, k -> new Stats());
+        kindStats.add(latencyMillis);
+        if(latencyMillis >= slowMillis) {
+            logger.warn("Cancellation of {} took {}ms to be honoured; {}", kind, latencyMillis, kindStats);
+        } else {
+            logger.debug("Cancellation of {} took {}ms to be honoured; {}", kind, latencyMillis, kindStats);
+        }
+    }
+
+    /**
+     * @return Metrics for jobs of given kind, or null if no cancellations were recorded for that kind.
+     */
+    public Stats stats(String kind) {
+        return stats.get(kind);
+    }
+
+
+    public static class Stats {
+        private long count = 0;
+        private long totalMillis = 0;
+        private long maxMillis = 0;
+
+
+        private synchronized void add(long latencyMillis) {
+            ++count;
+            totalMillis += latencyMillis;
+            maxMillis = Math.max(maxMillis, latencyMillis);
+        }
+
+        public synchronized long count() {
+            return count;
+        }
+
+        public synchronized long averageMillis() {
+            return count == 0 ? 0 : totalMillis / count;
+        }
+
+        public synchronized long maxMillis() {
+            return maxMillis;
+        }
+
+
+        @Override public synchronized String toString() {
+            return count + " cancellations, average " + averageMillis() + "ms, max " + maxMillis + "ms";
+        }
+    }
+}
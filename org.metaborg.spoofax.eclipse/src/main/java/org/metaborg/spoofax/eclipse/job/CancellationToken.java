@@ -0,0 +1,68 @@
+package org.metaborg.spoofax.eclipse.job;
+
+import java.util.concurrent.TimeUnit;
+
+import org.metaborg.util.task.ICancel;
+
+/**
+ * Token for cooperative cancellation of a job. Cancellation is requested with {@link #cancel()}, and honoured by the
+ * job at well-defined checkpoints by calling {@link #cancelled()} or {@link #throwIfCancelled()}, such that locks are
+ * released and caches are left in a consistent state. Records when cancellation was requested, so that the time it
+ * takes to honour the request can be measured.
+ */
+public class CancellationToken implements ICancel {
+    private volatile boolean cancelled = false;
+    private volatile long requestedNanos;
+    private volatile boolean finished = false;
+
+
+    @Override public void cancel() {
+        if(cancelled) {
+            return;
+        }
+        requestedNanos = System.nanoTime();
+        cancelled = true;
+    }
+
+    @Override public boolean cancelled() {
+        return cancelled;
+    }
+
+    @Override public void throwIfCancelled() throws InterruptedException {
+        if(cancelled) {
+            throw new InterruptedException();
+        }
+    }
+
+
+    /**
+     * Marks the job that uses this token as finished. Must be called once when the job stops running.
+     *
+     * @return Time in milliseconds between requesting cancellation and the job finishing, or -1 if cancellation was
+     *         not requested.
+     */
+    public long finish() {
+        finished = true;
+        if(!cancelled) {
+            return -1;
+        }
+        return elapsedMillis();
+    }
+
+    /**
+     * @return True if the job that uses this token has finished.
+     */
+    public boolean finished() {
+        return finished;
+    }
+
+    /**
+     * @return Time in milliseconds since cancellation was requested, or -1 if cancellation was not requested.
+     */
+    public long elapsedMillis() {
+        if(!cancelled) {
+            return -1;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestedNanos);
+    }
+}
@@ -0,0 +1,55 @@
+package org.metaborg.spoofax.eclipse.job;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.Job;
+import org.metaborg.spoofax.eclipse.util.StatusUtils;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Job that interrupts given thread when scheduled, if the job running on that thread has not honoured its cancellation
+ * token yet, to wake it up from blocking waits. Warns if cancellation is still not honoured after a certain time. Never
+ * forcibly stops the thread, since that may leave locks and caches in an inconsistent state.
+ */
+public class ThreadInterrupterJob extends Job {
+    private static final ILogger logger = LoggerUtils.logger(ThreadInterrupterJob.class);
+
+    private final Thread thread;
+    private final CancellationToken token;
+    private final long warnTimeMillis;
+
+
+    public ThreadInterrupterJob(Thread thread, CancellationToken token, long warnTimeMillis) {
+        super("Interrupting thread");
+
+        this.thread = thread;
+        this.token = token;
+        this.warnTimeMillis = warnTimeMillis;
+
+        setSystem(true);
+        setPriority(INTERACTIVE);
+    }
+
+
+    @Override protected IStatus run(IProgressMonitor monitor) {
+        if(monitor.isCanceled() || token.finished())
+            return StatusUtils.cancel();
+
+        logger.debug("Interrupting {}, cancellation was requested {}ms ago", thread, token.elapsedMillis());
+        thread.interrupt();
+
+        try {
+            Thread.sleep(warnTimeMillis);
+        } catch(InterruptedException e) {
+            return StatusUtils.cancel();
+        }
+
+        if(monitor.isCanceled() || token.finished())
+            return StatusUtils.cancel();
+
+        logger.warn("{} has not honoured cancellation {}ms after it was requested", thread, token.elapsedMillis());
+
+        return StatusUtils.success();
+    }
+}
@@ -0,0 +1,134 @@
+package org.metaborg.spoofax.eclipse.language;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelectInfo;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.FileType;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+
+/**
+ * Digests of the stamps of the compiled artifacts of a language component, grouped by the facets they are loaded into.
+ * Used to determine which facets of a language component changed when it is reloaded. Artifacts are stamped by name,
+ * size, and modification time instead of by content, such that large artifacts such as Stratego jars are not read on
+ * every load.
+ */
+final class ComponentArtifacts {
+    enum Kind {
+        /** Parse tables of the syntax facet. */
+        SYNTAX,
+        /** Stratego CTree and jar files of the Stratego runtime facet. */
+        STRATEGO,
+        /** Compiled ESV file, which styler, outline, menu, and other editor facets are created from. */
+        PRESENTATION,
+        /** Configuration and any other artifact, such as analysis specifications. */
+        OTHER
+    }
+
+    /**
+     * Location of compiled artifacts, relative to the location of a language component.
+     */
+    private static final String artifactsDirectory = "target/metaborg";
+    private static final String configFile = "metaborg.yaml";
+
+    private final Map<Kind, byte[]> digests;
+
+
+    private ComponentArtifacts(Map<Kind, byte[]> digests) {
+        this.digests = digests;
+    }
+
+
+    /**
+     * Computes digests of the stamps of the compiled artifacts of the language component at given location.
+     *
+     * @param location
+     *            Location of the language component.
+     * @return Artifact digests, or null if they cannot be computed.
+     */
+    static @Nullable ComponentArtifacts of(FileObject location) {
+        try {
+            final Map<Kind, MessageDigest> digests = new HashMap<>();
+            for(Kind kind : Kind.values()) {
+                digests.put(kind, MessageDigest.getInstance("SHA-256"));
+            }
+
+            final FileObject config = location.resolveFile(configFile);
+            if(config.exists()) {
+                update(digests.get(Kind.OTHER), config);
+            }
+            final FileObject directory = location.resolveFile(artifactsDirectory);
+            if(directory.exists()) {
+                final FileObject[] files = directory.findFiles(new FileSelector() {
+                    @Override public boolean includeFile(FileSelectInfo fileInfo) throws Exception {
+                        return fileInfo.getFile().getType() == FileType.FILE;
+                    }
+
+                    @Override public boolean traverseDescendents(FileSelectInfo fileInfo) {
+                        return true;
+                    }
+                });
+                Arrays.sort(files, Comparator.comparing(file -> file.getName().getURI()));
+                for(FileObject file : files) {
+                    update(digests.get(kind(file.getName().getExtension())), file);
+                }
+            }
+
+            final Map<Kind, byte[]> result = new HashMap<>();
+            for(Map.Entry<Kind, MessageDigest> entry : digests.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().digest());
+            }
+            return new ComponentArtifacts(result);
+        } catch(IOException | NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * @return Kinds of artifacts that differ between this and given previous artifacts.
+     */
+    Set<Kind> changed(ComponentArtifacts previous) {
+        final Set<Kind> changed = new HashSet<>();
+        for(Kind kind : Kind.values()) {
+            if(!Arrays.equals(digests.get(kind), previous.digests.get(kind))) {
+                changed.add(kind);
+            }
+        }
+        return changed;
+    }
+
+
+    private static Kind kind(String extension) {
+        switch(extension) {
+            case "tbl":
+            case "bin":
+                return Kind.SYNTAX;
+            case "ctree":
+            case "jar":
+                return Kind.STRATEGO;
+            case "af":
+                return Kind.PRESENTATION;
+            default:
+                return Kind.OTHER;
+        }
+    }
+
+    private static void update(MessageDigest digest, FileObject file) throws IOException {
+        final FileContent content = file.getContent();
+        final String stamp =
+            file.getName().getURI() + ":" + content.getSize() + ":" + content.getLastModifiedTime() + "\n";
+        digest.update(stamp.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -2,8 +2,11 @@ package org.metaborg.spoofax.eclipse.language;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.eclipse.core.resources.IResource;
@@ -14,6 +17,7 @@ import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.IEditorRegistry;
 import org.eclipse.ui.PlatformUI;
 import org.metaborg.core.context.IContextProcessor;
+import org.metaborg.core.editor.IEditor;
 import org.metaborg.core.language.ILanguageCache;
 import org.metaborg.core.language.ILanguageComponent;
 import org.metaborg.core.language.ILanguageIdentifierService;
@@ -28,6 +32,7 @@ import org.metaborg.spoofax.eclipse.editor.SpoofaxEditor;
 import org.metaborg.spoofax.eclipse.resource.IEclipseResourceService;
 import org.metaborg.spoofax.eclipse.util.EditorMappingUtils;
 import org.metaborg.spoofax.eclipse.util.MarkerUtils;
+import org.metaborg.spoofax.eclipse.util.Nullable;
 import org.metaborg.spoofax.eclipse.util.ResourceUtils;
 import org.metaborg.util.Strings;
 import org.metaborg.util.collection.Sets;
@@ -39,18 +44,24 @@ import org.metaborg.util.log.LoggerUtils;
 
 /**
  * Extends the {@code LanguageChangeProcessor} to include Eclipse-specific operations such as changing editor
- * associations and resource markers.
+ * associations and resource markers. When a language component in the workspace is reloaded and only its presentation
+ * artifacts changed, editors of the language are restyled without invalidating parse and analysis results.
  */
 public class EclipseLanguageChangeProcessor extends LanguageChangeProcessor {
     private static final ILogger logger = LoggerUtils.logger(EclipseLanguageChangeProcessor.class);
 
     private final IEclipseResourceService resourceService;
     private final ILanguageIdentifierService languageIdentifier;
+    private final org.metaborg.core.editor.IEditorRegistry editorRegistry;
+    private final Set<ILanguageCache> languageCaches;
 
     private final IWorkspace workspace;
     private final IEditorRegistry eclipseEditorRegistry;
     private final Display display;
 
+    private final Map<FileName, ComponentArtifacts> artifacts = new ConcurrentHashMap<>();
+    private final Map<ILanguageComponent, Set<ComponentArtifacts.Kind>> reloadChanges = new ConcurrentHashMap<>();
+
 
     @jakarta.inject.Inject public EclipseLanguageChangeProcessor(IEclipseResourceService resourceService,
         ILanguageIdentifierService languageIdentifier, IDialectProcessor dialectProcessor,
@@ -61,6 +72,8 @@ public class EclipseLanguageChangeProcessor extends LanguageChangeProcessor {
 
         this.resourceService = resourceService;
         this.languageIdentifier = languageIdentifier;
+        this.editorRegistry = editorRegistry;
+        this.languageCaches = languageCaches;
 
         this.workspace = ResourcesPlugin.getWorkspace();
         this.eclipseEditorRegistry = PlatformUI.getWorkbench().getEditorRegistry();
@@ -81,6 +94,11 @@ public class EclipseLanguageChangeProcessor extends LanguageChangeProcessor {
             });
         }
 
+        final ComponentArtifacts componentArtifacts = artifacts(component);
+        if(componentArtifacts != null) {
+            artifacts.put(component.location().getName(), componentArtifacts);
+        }
+
         super.addedComponent(component);
     }
 
@@ -106,6 +124,19 @@ public class EclipseLanguageChangeProcessor extends LanguageChangeProcessor {
             });
         }
 
+        reloadChanges.remove(oldComponent);
+        final ComponentArtifacts newArtifacts = artifacts(newComponent);
+        final ComponentArtifacts oldArtifacts =
+            oldComponent.location() != null ? artifacts.remove(oldComponent.location().getName()) : null;
+        if(newArtifacts != null) {
+            artifacts.put(newComponent.location().getName(), newArtifacts);
+            if(oldArtifacts != null) {
+                final Set<ComponentArtifacts.Kind> changes = newArtifacts.changed(oldArtifacts);
+                logger.debug("Artifacts of kind(s) {} changed in {}", changes, newComponent);
+                reloadChanges.put(newComponent, changes);
+            }
+        }
+
         super.reloadedComponent(oldComponent, newComponent);
     }
 
@@ -122,9 +153,39 @@ public class EclipseLanguageChangeProcessor extends LanguageChangeProcessor {
             });
         }
 
+        reloadChanges.remove(component);
+        if(component.location() != null) {
+            artifacts.remove(component.location().getName());
+        }
+
         super.removedComponent(component);
     }
 
+    @Override public void reloadedImpl(ILanguageImpl language) {
+        if(!presentationOnly(language)) {
+            super.reloadedImpl(language);
+            return;
+        }
+
+        logger.debug("Only presentation artifacts of {} changed, restyling editors without re-analysis", language);
+        for(ILanguageCache languageCache : languageCaches) {
+            // The parse and analysis result processors are language caches as well. Keep their results, such that
+            // editors reuse the analysis result instead of re-analyzing. Other caches, such as those of facets
+            // created from ESV, are invalidated.
+            if(languageCache instanceof IParseResultProcessor || languageCache instanceof IAnalysisResultProcessor) {
+                continue;
+            }
+            languageCache.invalidateCache(language);
+        }
+        for(IEditor editor : editorRegistry.openEditors()) {
+            if(language.equals(editor.language())) {
+                // Forced updates reparse and restyle, but reuse the analysis result, which is not invalidated.
+                editor.reconfigure();
+                editor.forceUpdate();
+            }
+        }
+    }
+
     @Override public void removedImpl(ILanguageImpl language) {
         if(languageIdentifier.available(language)) {
             try {
@@ -152,6 +213,40 @@ public class EclipseLanguageChangeProcessor extends LanguageChangeProcessor {
     }
 
 
+    /**
+     * Consumes the recorded changes of reloaded components of given language implementation.
+     *
+     * @return True if components of given language were reloaded, and at most their presentation artifacts changed.
+     */
+    private boolean presentationOnly(ILanguageImpl language) {
+        boolean reloaded = false;
+        boolean presentationOnly = true;
+        for(ILanguageComponent component : language.components()) {
+            final Set<ComponentArtifacts.Kind> changes = reloadChanges.remove(component);
+            if(changes == null) {
+                continue;
+            }
+            reloaded = true;
+            for(ComponentArtifacts.Kind kind : changes) {
+                if(kind != ComponentArtifacts.Kind.PRESENTATION) {
+                    presentationOnly = false;
+                }
+            }
+        }
+        return reloaded && presentationOnly;
+    }
+
+    /**
+     * @return Artifacts of given component if it is a language specification in the workspace, null otherwise.
+     */
+    private @Nullable ComponentArtifacts artifacts(ILanguageComponent component) {
+        final FileObject location = component.location();
+        if(location == null || resourceService.unresolve(location) == null) {
+            return null;
+        }
+        return ComponentArtifacts.of(location);
+    }
+
     private Set<String> getExtensions(ILanguageComponent component) {
         final Set<String> extensions = new HashSet<>();
         for(ResourceExtensionFacet facet : component.facets(ResourceExtensionFacet.class)) {
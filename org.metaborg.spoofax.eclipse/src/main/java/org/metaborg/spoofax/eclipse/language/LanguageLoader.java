@@ -2,6 +2,19 @@ package org.metaborg.spoofax.eclipse.language;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.vfs2.FileObject;
 import org.eclipse.core.resources.IProject;
@@ -16,16 +29,22 @@ import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.runtime.jobs.MultiRule;
 import org.metaborg.core.MetaborgException;
+import org.metaborg.core.config.ILanguageComponentConfig;
+import org.metaborg.core.language.ComponentCreationConfig;
 import org.metaborg.core.language.ILanguageComponent;
 import org.metaborg.core.language.ILanguageDiscoveryRequest;
 import org.metaborg.core.language.ILanguageDiscoveryService;
 import org.metaborg.core.language.ILanguageService;
+import org.metaborg.core.language.LanguageIdentifier;
 import org.metaborg.core.language.dialect.IDialectProcessor;
 import org.metaborg.core.resource.ResourceChange;
 import org.metaborg.core.resource.ResourceChangeKind;
 import org.metaborg.core.resource.ResourceUtils;
+import org.metaborg.spoofax.core.resource.SpoofaxIgnoresSelector;
 import org.metaborg.spoofax.eclipse.job.GlobalSchedulingRules;
 import org.metaborg.spoofax.eclipse.resource.IEclipseResourceService;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.spoofax.eclipse.util.SourceFiles;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 import org.osgi.framework.Bundle;
@@ -100,7 +119,8 @@ public class LanguageLoader {
         }
 
         try {
-            final Iterable<FileObject> resources = ResourceUtils.find(location);
+            final Iterable<FileObject> resources = SourceFiles.find(resourceService, location,
+                new SpoofaxIgnoresSelector(), SourceFiles.sourceExtensions(languageService));
             final Iterable<ResourceChange> creations = ResourceUtils.toChanges(resources, ResourceChangeKind.Create);
             dialectProcessor.update(location, creations);
         } catch(IOException e) {
@@ -125,27 +145,117 @@ public class LanguageLoader {
     }
 
     /**
-     * Loads all languages and dialects from plugins.
+     * Loads all languages and dialects from plugins. Discovery requests, language component configurations including
+     * their facets, and dialect scans of plugins are created concurrently on a bounded pool, while language components
+     * are added to the language service sequentially in dependency order.
      */
     public void loadFromPlugins() {
         logger.debug("Loading languages from plugins");
-        final IExtensionRegistry registry = Platform.getExtensionRegistry();
-        final IExtensionPoint point = registry.getExtensionPoint("org.metaborg.spoofax.eclipse.language");
-        for(IConfigurationElement config : point.getConfigurationElements()) {
-            if(config.getName().equals("language")) {
-                final String relativeLocation = config.getAttribute("location");
-                final String contributor = config.getDeclaringExtension().getContributor().getName();
-                try {
-                    final Bundle bundle = Platform.getBundle(contributor);
-                    final File bundleLocationFile = FileLocator.getBundleFile(bundle);
-                    final FileObject bundleLocation = resourceService.resolve(bundleLocationFile);
-                    final FileObject location = bundleLocation.resolveFile(relativeLocation);
-                    load(location, false);
-                } catch(IOException e) {
-                    logger.error("Could not load language from {} in plugin {}", e, relativeLocation, contributor);
+        final long start = System.nanoTime();
+        final List<PluginLanguage> languages = pluginLanguages();
+        if(languages.isEmpty()) {
+            return;
+        }
+
+        final int threads = Math.max(1, Math.min(languages.size(), Runtime.getRuntime().availableProcessors()));
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // Create discovery requests and component configurations concurrently. Creating a configuration reads the
+            // configuration and builds the facets of a component, such as parse tables, ESV, and Stratego runtimes.
+            final List<Future<?>> createFutures = new ArrayList<>(languages.size());
+            for(PluginLanguage language : languages) {
+                createFutures.add(executor.submit(() -> {
+                    final long requestStart = System.nanoTime();
+                    final Iterable<ILanguageDiscoveryRequest> requests;
+                    try {
+                        requests = languageDiscoveryService.request(language.location);
+                    } catch(MetaborgException e) {
+                        logger.error("Could not discover language at location {}", e, language.location);
+                        return;
+                    } finally {
+                        language.requestNanos = System.nanoTime() - requestStart;
+                    }
+
+                    final long createStart = System.nanoTime();
+                    final Map<ILanguageDiscoveryRequest, ComponentCreationConfig> configs = new IdentityHashMap<>();
+                    for(ILanguageDiscoveryRequest request : requests) {
+                        try {
+                            configs.put(request, languageDiscoveryService.createConfig(request));
+                        } catch(MetaborgException e) {
+                            logger.error("Could not discover language at location {}", e, request.location());
+                        }
+                    }
+                    language.createNanos = System.nanoTime() - createStart;
+                    language.configs = configs;
+                    language.requests = requests;
+                }));
+            }
+            await(createFutures);
+
+            // Add components sequentially, such that dependencies are added before their dependents.
+            final Map<ILanguageDiscoveryRequest, PluginLanguage> owners = new IdentityHashMap<>();
+            for(PluginLanguage language : languages) {
+                if(language.requests != null) {
+                    for(ILanguageDiscoveryRequest request : language.requests) {
+                        owners.put(request, language);
+                    }
+                }
+            }
+            for(ILanguageDiscoveryRequest request : dependencyOrder(languages)) {
+                final PluginLanguage language = owners.get(request);
+                final ComponentCreationConfig config = language.configs.get(request);
+                if(config == null) {
+                    continue;
+                }
+                final long addStart = System.nanoTime();
+                languageService.add(config);
+                language.addNanos += System.nanoTime() - addStart;
+            }
+
+            // Scan for dialects concurrently, and process them sequentially.
+            final Set<String> extensions = SourceFiles.sourceExtensions(languageService);
+            final List<Future<?>> scanFutures = new ArrayList<>(languages.size());
+            for(PluginLanguage language : languages) {
+                scanFutures.add(executor.submit(() -> {
+                    final long scanStart = System.nanoTime();
+                    try {
+                        language.resources = SourceFiles.find(resourceService, language.location,
+                            new SpoofaxIgnoresSelector(), extensions);
+                    } catch(IOException e) {
+                        logger.error("Could not discover dialects at location {}", e, language.location);
+                    }
+                    language.dialectNanos = System.nanoTime() - scanStart;
+                }));
+            }
+            await(scanFutures);
+            for(PluginLanguage language : languages) {
+                if(language.resources == null) {
+                    continue;
                 }
+                final long updateStart = System.nanoTime();
+                final Iterable<ResourceChange> creations =
+                    ResourceUtils.toChanges(language.resources, ResourceChangeKind.Create);
+                dialectProcessor.update(language.location, creations);
+                language.dialectNanos += System.nanoTime() - updateStart;
             }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Loading languages from plugins was interrupted");
+            return;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for(PluginLanguage language : languages) {
+            logger.info(
+                "Loaded language {} from plugin {} in {}ms; requests {}ms, configuration and facets {}ms, "
+                    + "adding to language service {}ms, dialects {}ms",
+                language.relativeLocation, language.contributor, millis(language.requestNanos + language.createNanos
+                    + language.addNanos + language.dialectNanos), millis(language.requestNanos),
+                millis(language.createNanos), millis(language.addNanos), millis(language.dialectNanos));
         }
+        logger.info("Loaded {} language(s) from plugins in {}ms using {} thread(s)", languages.size(),
+            millis(System.nanoTime() - start), threads);
     }
 
     /**
@@ -198,4 +308,116 @@ public class LanguageLoader {
             new ISchedulingRule[] { workspaceRoot, globalRules.startupReadLock(), globalRules.languageServiceLock() }));
         return job;
     }
+
+
+    private List<PluginLanguage> pluginLanguages() {
+        final List<PluginLanguage> languages = new ArrayList<>();
+        final IExtensionRegistry registry = Platform.getExtensionRegistry();
+        final IExtensionPoint point = registry.getExtensionPoint("org.metaborg.spoofax.eclipse.language");
+        for(IConfigurationElement config : point.getConfigurationElements()) {
+            if(config.getName().equals("language")) {
+                final String relativeLocation = config.getAttribute("location");
+                final String contributor = config.getDeclaringExtension().getContributor().getName();
+                try {
+                    final Bundle bundle = Platform.getBundle(contributor);
+                    final File bundleLocationFile = FileLocator.getBundleFile(bundle);
+                    final FileObject bundleLocation = resourceService.resolve(bundleLocationFile);
+                    final FileObject location = bundleLocation.resolveFile(relativeLocation);
+                    languages.add(new PluginLanguage(contributor, relativeLocation, location));
+                } catch(IOException e) {
+                    logger.error("Could not load language from {} in plugin {}", e, relativeLocation, contributor);
+                }
+            }
+        }
+        return languages;
+    }
+
+    /**
+     * Orders the discovery requests of given languages such that requests for language components come after the
+     * requests for components they depend on. Requests without configuration and dependency cycles keep their order.
+     */
+    private static List<ILanguageDiscoveryRequest> dependencyOrder(List<PluginLanguage> languages) {
+        final Map<LanguageIdentifier, ILanguageDiscoveryRequest> byIdentifier = new HashMap<>();
+        final List<ILanguageDiscoveryRequest> requests = new ArrayList<>();
+        for(PluginLanguage language : languages) {
+            if(language.requests == null) {
+                continue;
+            }
+            for(ILanguageDiscoveryRequest request : language.requests) {
+                requests.add(request);
+                final ILanguageComponentConfig config = request.config();
+                if(config != null) {
+                    byIdentifier.put(config.identifier(), request);
+                }
+            }
+        }
+
+        final Set<ILanguageDiscoveryRequest> visited = new HashSet<>();
+        final List<ILanguageDiscoveryRequest> ordered = new ArrayList<>(requests.size());
+        for(ILanguageDiscoveryRequest request : requests) {
+            visit(request, byIdentifier, visited, ordered);
+        }
+        return ordered;
+    }
+
+    private static void visit(ILanguageDiscoveryRequest request,
+        Map<LanguageIdentifier, ILanguageDiscoveryRequest> byIdentifier, Set<ILanguageDiscoveryRequest> visited,
+        List<ILanguageDiscoveryRequest> ordered) {
+        if(!visited.add(request)) {
+            return;
+        }
+        final ILanguageComponentConfig config = request.config();
+        if(config != null) {
+            final List<LanguageIdentifier> dependencies = new ArrayList<>();
+            dependencies.addAll(config.compileDeps());
+            dependencies.addAll(config.sourceDeps());
+            for(LanguageIdentifier dependency : dependencies) {
+                final ILanguageDiscoveryRequest dependencyRequest = byIdentifier.get(dependency);
+                if(dependencyRequest != null) {
+                    visit(dependencyRequest, byIdentifier, visited, ordered);
+                }
+            }
+        }
+        ordered.add(request);
+    }
+
+    private static void await(List<Future<?>> futures) throws InterruptedException {
+        for(Future<?> future : futures) {
+            try {
+                future.get();
+            } catch(ExecutionException e) {
+                logger.error("Loading a language from a plugin failed unexpectedly", e.getCause());
+            }
+        }
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+
+    /**
+     * Language contributed by a plugin, with its discovery results and timings.
+     */
+    private static class PluginLanguage {
+        private final String contributor;
+        private final String relativeLocation;
+        private final FileObject location;
+
+        private volatile @Nullable Iterable<ILanguageDiscoveryRequest> requests;
+        private volatile Map<ILanguageDiscoveryRequest, ComponentCreationConfig> configs = new IdentityHashMap<>();
+        private volatile @Nullable Collection<FileObject> resources;
+
+        private volatile long requestNanos;
+        private volatile long createNanos;
+        private volatile long addNanos;
+        private volatile long dialectNanos;
+
+
+        PluginLanguage(String contributor, String relativeLocation, FileObject location) {
+            this.contributor = contributor;
+            this.relativeLocation = relativeLocation;
+            this.location = location;
+        }
+    }
 }
@@ -2,19 +2,30 @@ package org.metaborg.spoofax.eclipse.processing;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.SubMonitor;
+import org.metaborg.spoofax.eclipse.util.Nullable;
 import org.metaborg.util.task.ICancel;
 import org.metaborg.util.task.IProgress;
 
 public class Monitor implements IProgress, ICancel {
     private final SubMonitor monitor;
+    private final @Nullable ICancel cancel;
 
 
     public Monitor(IProgressMonitor monitor) {
-        this.monitor = SubMonitor.convert(monitor);
+        this(SubMonitor.convert(monitor), null);
     }
 
     public Monitor(SubMonitor monitor) {
+        this(monitor, null);
+    }
+
+    /**
+     * Creates a monitor that is also cancelled when given cancellation token is cancelled. The token is passed on to
+     * sub-progress monitors.
+     */
+    public Monitor(SubMonitor monitor, @Nullable ICancel cancel) {
         this.monitor = monitor;
+        this.cancel = cancel;
     }
 
 
@@ -31,20 +42,24 @@ public class Monitor implements IProgress, ICancel {
     }
 
     @Override public Monitor subProgress(int ticks) {
-        return new Monitor(monitor.split(ticks, SubMonitor.SUPPRESS_SETTASKNAME | SubMonitor.SUPPRESS_BEGINTASK));
+        return new Monitor(monitor.split(ticks, SubMonitor.SUPPRESS_SETTASKNAME | SubMonitor.SUPPRESS_BEGINTASK),
+            cancel);
     }
 
 
     @Override public void cancel() {
         monitor.setCanceled(true);
+        if(cancel != null) {
+            cancel.cancel();
+        }
     }
 
     @Override public boolean cancelled() {
-        return monitor.isCanceled();
+        return monitor.isCanceled() || (cancel != null && cancel.cancelled());
     }
 
     @Override public void throwIfCancelled() throws InterruptedException {
-        if(monitor.isCanceled()) {
+        if(cancelled()) {
             throw new InterruptedException();
         }
     }
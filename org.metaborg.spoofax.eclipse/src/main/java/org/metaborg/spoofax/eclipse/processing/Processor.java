@@ -1,5 +1,8 @@
 package org.metaborg.spoofax.eclipse.processing;
 
+import java.util.ArrayList;
+import java.util.Collection;
+
 import org.apache.commons.vfs2.FileObject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspace;
@@ -23,6 +26,7 @@ import org.metaborg.core.processing.ITask;
 import org.metaborg.core.project.IProject;
 import org.metaborg.core.resource.ResourceChange;
 import org.metaborg.core.syntax.IParseUnit;
+import org.metaborg.core.transform.ITransformOutput;
 import org.metaborg.core.transform.ITransformUnit;
 import org.metaborg.spoofax.eclipse.build.BuildRunnable;
 import org.metaborg.spoofax.eclipse.build.CleanRunnable;
@@ -84,8 +88,8 @@ public class Processor<P extends IParseUnit, A extends IAnalyzeUnit, AU extends
         final IWorkspaceRunnable runnable =
             new BuildRunnable<>(resourceService, builder, input, progress, cancel, outputRef);
         final IResource projectResource = getResource(input.project);
-        final ITask<IBuildOutput<P, A, AU, T>> task =
-            new RunnableTask<>(workspace, runnable, projectResource, null, cancel, outputRef, projectResource);
+        final ITask<IBuildOutput<P, A, AU, T>> task = new RunnableTask<>(workspace, runnable, projectResource, null,
+            cancel, outputRef, projectResource, () -> writtenResources(outputRef.get()));
         return task;
     }
 
@@ -96,7 +100,7 @@ public class Processor<P extends IParseUnit, A extends IAnalyzeUnit, AU extends
         final IWorkspaceRunnable runnable = new CleanRunnable<>(builder, input, progress, cancel);
         final IResource projectResource = getResource(input.project);
         final ITask<?> task =
-            new RunnableTask<>(workspace, runnable, projectResource, null, cancel, null, projectResource);
+            new RunnableTask<>(workspace, runnable, projectResource, null, cancel, null, projectResource, null);
         return task;
     }
 
@@ -105,7 +109,7 @@ public class Processor<P extends IParseUnit, A extends IAnalyzeUnit, AU extends
         final ICancel cancel = new NullCancel();
         final IWorkspaceRunnable runnable = new ProcessDialectsRunnable(dialectProcessor, location, changes);
         final IResource projectResource = getResource(location);
-        final ITask<?> task = new RunnableTask<>(workspace, runnable, projectResource, null, cancel, null, null);
+        final ITask<?> task = new RunnableTask<>(workspace, runnable, projectResource, null, cancel, null, null, null);
         return task;
     }
 
@@ -146,4 +150,30 @@ public class Processor<P extends IParseUnit, A extends IAnalyzeUnit, AU extends
         final IResource eclipseResource = resourceService.unresolve(resource);
         return eclipseResource;
     }
+
+    /**
+     * @return Eclipse resources of the files written by transformations in given build, or null if the build did not
+     *         complete or a written file is not in the workspace, in which case the entire project must be refreshed.
+     */
+    private @Nullable Collection<IResource> writtenResources(@Nullable IBuildOutput<P, A, AU, T> output) {
+        if(output == null) {
+            return null;
+        }
+        final Collection<IResource> resources = new ArrayList<>();
+        for(T result : output.transformResults()) {
+            for(ITransformOutput transformOutput : result.outputs()) {
+                final FileObject resource = transformOutput.output();
+                if(resource == null) {
+                    // Output was not written to a file.
+                    continue;
+                }
+                final IResource eclipseResource = resourceService.unresolve(resource);
+                if(eclipseResource == null) {
+                    return null;
+                }
+                resources.add(eclipseResource);
+            }
+        }
+        return resources;
+    }
 }
@@ -1,5 +1,8 @@
 package org.metaborg.spoofax.eclipse.processing;
 
+import java.util.function.Supplier;
+
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.IWorkspaceRunnable;
@@ -8,6 +11,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.metaborg.core.processing.ITask;
 import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.spoofax.eclipse.util.RefreshUtils;
 import org.metaborg.util.Ref;
 import org.metaborg.util.task.ICancel;
 
@@ -23,13 +27,14 @@ public class RunnableTask<T> implements ITask<T> {
     private final ICancel cancel;
     private final @Nullable Ref<T> valueRef;
     private final @Nullable IResource refreshResource;
+    private final @Nullable Supplier<? extends Iterable<IResource>> writtenResources;
 
     private boolean completed = false;
 
 
     public RunnableTask(IWorkspace workspace, IWorkspaceRunnable runnable, @Nullable ISchedulingRule rule,
         @Nullable IProgressMonitor monitor, ICancel cancel, @Nullable Ref<T> valueRef,
-        @Nullable IResource refreshResource) {
+        @Nullable IResource refreshResource, @Nullable Supplier<? extends Iterable<IResource>> writtenResources) {
         this.workspace = workspace;
         this.runnable = runnable;
         this.rule = rule;
@@ -37,6 +42,7 @@ public class RunnableTask<T> implements ITask<T> {
         this.cancel = cancel;
         this.valueRef = valueRef;
         this.refreshResource = refreshResource;
+        this.writtenResources = writtenResources;
     }
 
 
@@ -44,7 +50,7 @@ public class RunnableTask<T> implements ITask<T> {
         try {
             workspace.run(runnable, rule, IWorkspace.AVOID_UPDATE, monitor);
             if(refreshResource != null) {
-                refreshResource.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+                refresh(refreshResource);
             }
         } catch(CoreException e) {
 
@@ -53,6 +59,21 @@ public class RunnableTask<T> implements ITask<T> {
         return this;
     }
 
+    /**
+     * Refreshes the resources written by the runnable if they are known, or all resources in given resource otherwise.
+     */
+    private void refresh(IResource resource) throws CoreException {
+        final Iterable<IResource> written = writtenResources != null ? writtenResources.get() : null;
+        if(written != null) {
+            RefreshUtils.refresh(written, monitor);
+        } else if(resource instanceof IProject) {
+            RefreshUtils.refreshProject((IProject) resource, monitor);
+        } else {
+            resource.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+        }
+    }
+
+
     @Override public void cancel() {
         cancel.cancel();
     }
@@ -4,10 +4,21 @@ import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
 import org.apache.commons.vfs2.provider.local.DefaultLocalFileProvider;
 import org.metaborg.core.resource.DefaultFileSystemManagerProvider;
+import org.metaborg.spoofax.eclipse.SpoofaxPreferences;
+
+import jakarta.inject.Provider;
 
 public class EclipseFileSystemManagerProvider extends DefaultFileSystemManagerProvider {
+    private final Provider<SpoofaxPreferences> preferencesProvider;
+
+
+    @jakarta.inject.Inject public EclipseFileSystemManagerProvider(Provider<SpoofaxPreferences> preferencesProvider) {
+        this.preferencesProvider = preferencesProvider;
+    }
+
+
     @Override protected void addDefaultProvider(DefaultFileSystemManager manager) throws FileSystemException {
-        final EclipseResourceProvider provider = new EclipseResourceProvider();
+        final EclipseResourceProvider provider = new EclipseResourceProvider(preferencesProvider);
         manager.addProvider("eclipse", provider);
         manager.setDefaultProvider(provider);
     }
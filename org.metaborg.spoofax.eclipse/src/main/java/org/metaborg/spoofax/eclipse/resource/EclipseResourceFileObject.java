@@ -1,12 +1,11 @@
 package org.metaborg.spoofax.eclipse.resource;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 
+import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
-import org.apache.commons.vfs2.FileSystem;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileType;
 import org.apache.commons.vfs2.provider.AbstractFileName;
@@ -23,7 +22,7 @@ import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
-import org.metaborg.util.stream.OnCloseByteArrayOutputStream;
+import org.metaborg.spoofax.eclipse.util.Nullable;
 import org.spoofax.terms.util.NotImplementedException;
 
 public class EclipseResourceFileObject extends AbstractFileObject<EclipseResourceFileSystem> {
@@ -44,15 +43,20 @@ public class EclipseResourceFileObject extends AbstractFileObject<EclipseResourc
 
     public IResource resource() throws CoreException {
         if(resource == null)
-            update();
+            updateResource();
 
         return resource;
     }
 
 
-    private void update() throws CoreException {
-        updateResource();
-        updateFileInfo();
+    /**
+     * Sets the Eclipse resource of this file object if it has not been determined yet, to prevent looking it up again
+     * when the resource is already known, for example when listing the members of a container.
+     */
+    void setResource(IResource knownResource) {
+        if(resource == null) {
+            resource = knownResource;
+        }
     }
 
     private void updateResource() {
@@ -89,16 +93,24 @@ public class EclipseResourceFileObject extends AbstractFileObject<EclipseResourc
         }
     }
 
-    private void updateFileInfo() throws CoreException {
+    /**
+     * Gets the file information of the resource, fetching it from the file system only when first requested, since
+     * fetching file information is a relatively expensive native call that most callers do not need.
+     */
+    private @Nullable IFileInfo info() throws CoreException {
+        if(info != null) {
+            return info;
+        }
         if(resource == null) {
-            return;
+            return null;
         }
         final URI locationURI = resource.getLocationURI();
         if(locationURI == null) {
-            return;
+            return null;
         }
         final IFileStore store = EFS.getStore(locationURI);
         info = store.fetchInfo();
+        return info;
     }
 
     private IPath getPath() {
@@ -109,12 +121,14 @@ public class EclipseResourceFileObject extends AbstractFileObject<EclipseResourc
     @Override protected void doAttach() throws CoreException {
         if(attached)
             return;
-        update();
+        if(resource == null)
+            updateResource();
         attached = true;
     }
 
     @Override protected void onChange() throws CoreException {
-        update();
+        updateResource();
+        info = null;
     }
 
     @Override protected void doDetach() {
@@ -139,18 +153,21 @@ public class EclipseResourceFileObject extends AbstractFileObject<EclipseResourc
         }
     }
 
-    @Override protected boolean doIsHidden() {
-        return info.getAttribute(EFS.ATTRIBUTE_HIDDEN);
+    @Override protected boolean doIsHidden() throws CoreException {
+        final IFileInfo fileInfo = info();
+        return fileInfo != null && fileInfo.getAttribute(EFS.ATTRIBUTE_HIDDEN);
     }
 
-    @Override protected boolean doIsReadable() {
-        return info.getAttribute(EFS.ATTRIBUTE_OWNER_READ) || info.getAttribute(EFS.ATTRIBUTE_GROUP_READ)
-            || info.getAttribute(EFS.ATTRIBUTE_OTHER_READ);
+    @Override protected boolean doIsReadable() throws CoreException {
+        final IFileInfo fileInfo = info();
+        return fileInfo != null && (fileInfo.getAttribute(EFS.ATTRIBUTE_OWNER_READ)
+            || fileInfo.getAttribute(EFS.ATTRIBUTE_GROUP_READ) || fileInfo.getAttribute(EFS.ATTRIBUTE_OTHER_READ));
     }
 
-    @Override protected boolean doIsWriteable() {
-        return info.getAttribute(EFS.ATTRIBUTE_OWNER_WRITE) || info.getAttribute(EFS.ATTRIBUTE_GROUP_WRITE)
-            || info.getAttribute(EFS.ATTRIBUTE_OTHER_WRITE);
+    @Override protected boolean doIsWriteable() throws CoreException {
+        final IFileInfo fileInfo = info();
+        return fileInfo != null && (fileInfo.getAttribute(EFS.ATTRIBUTE_OWNER_WRITE)
+            || fileInfo.getAttribute(EFS.ATTRIBUTE_GROUP_WRITE) || fileInfo.getAttribute(EFS.ATTRIBUTE_OTHER_WRITE));
     }
 
     @Override protected String[] doListChildren() throws CoreException {
@@ -164,17 +181,29 @@ public class EclipseResourceFileObject extends AbstractFileObject<EclipseResourc
     }
 
     @Override protected FileObject[] doListChildrenResolved() throws CoreException, FileSystemException {
-        final String[] children = doListChildren();
-        final FileSystem fileSystem = getFileSystem();
-        final FileObject[] files = new FileObject[children.length];
-        for(int i = 0; i < children.length; ++i) {
-            files[i] = fileSystem.resolveFile(children[i]);
+        final IContainer container = (IContainer) resource;
+        final IResource[] members = container.members();
+        final EclipseResourceFileSystem fileSystem = getAbstractFileSystem();
+        final String parentPath = name.getPath().endsWith("/") ? name.getPath() : name.getPath() + "/";
+        final FileObject[] files = new FileObject[members.length];
+        for(int i = 0; i < members.length; ++i) {
+            // Create child names and file objects directly from the members, instead of parsing and resolving their
+            // paths, and pass on the already known resource.
+            final IResource member = members[i];
+            final FileType type = member.getType() == IResource.FILE ? FileType.FILE : FileType.FOLDER;
+            final FileName childName = name.createName(parentPath + member.getName(), type);
+            final FileObject file = fileSystem.resolveFile(childName);
+            if(file instanceof EclipseResourceFileObject) {
+                ((EclipseResourceFileObject) file).setResource(member);
+            }
+            files[i] = file;
         }
         return files;
     }
 
-    @Override protected long doGetContentSize() {
-        return info.getLength();
+    @Override protected long doGetContentSize() throws CoreException {
+        final IFileInfo fileInfo = info();
+        return fileInfo != null ? fileInfo.getLength() : 0;
     }
 
     @Override protected void doDelete() throws CoreException {
@@ -212,21 +241,17 @@ public class EclipseResourceFileObject extends AbstractFileObject<EclipseResourc
             file = (IFile) resource;
         }
 
-        return new OnCloseByteArrayOutputStream(out -> {
-            try {
-                if(!file.exists()) {
-                    file.create(new ByteArrayInputStream(out.toByteArray()), true, null);
-                } else {
-                    file.setContents(new ByteArrayInputStream(out.toByteArray()), true, false, null);
-                }
-            } catch(CoreException e) {
-                throw new RuntimeException("Could not set file contents for file " + name, e);
-            }
-        });
+        return new FileContentsOutputStream(file);
     }
 
     @Override protected InputStream doGetInputStream() throws CoreException {
         final IFile file = (IFile) resource;
+        if(getAbstractFileSystem().directReads()) {
+            final InputStream stream = LocalFileInput.open(file);
+            if(stream != null) {
+                return stream;
+            }
+        }
         return file.getContents();
     }
 
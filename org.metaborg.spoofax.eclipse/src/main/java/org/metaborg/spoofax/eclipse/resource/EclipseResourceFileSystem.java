@@ -14,14 +14,30 @@ import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.ui.PlatformUI;
+import org.metaborg.spoofax.eclipse.SpoofaxPreferences;
+
+import jakarta.inject.Provider;
 
 public class EclipseResourceFileSystem extends AbstractFileSystem {
     private final IWorkspaceRoot root;
+    private final Provider<SpoofaxPreferences> preferencesProvider;
 
 
-    public EclipseResourceFileSystem(FileName rootName, FileObject parentLayer, FileSystemOptions fileSystemOptions) {
+    public EclipseResourceFileSystem(FileName rootName, FileObject parentLayer, FileSystemOptions fileSystemOptions,
+        Provider<SpoofaxPreferences> preferencesProvider) {
         super(rootName, parentLayer, fileSystemOptions);
         this.root = ResourcesPlugin.getWorkspace().getRoot();
+        this.preferencesProvider = preferencesProvider;
+    }
+
+
+    /**
+     * @return True if files with a local location should be read directly from the file system, bypassing the
+     *         workspace. Preferences require a running workbench, files are read through the workspace until then.
+     */
+    public boolean directReads() {
+        return PlatformUI.isWorkbenchRunning() && preferencesProvider.get().directReads();
     }
 
 
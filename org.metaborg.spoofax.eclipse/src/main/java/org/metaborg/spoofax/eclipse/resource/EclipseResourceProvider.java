@@ -8,8 +8,11 @@ import org.apache.commons.vfs2.FileSystem;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemOptions;
 import org.apache.commons.vfs2.provider.AbstractOriginatingFileProvider;
+import org.metaborg.spoofax.eclipse.SpoofaxPreferences;
 import org.metaborg.util.collection.ImList;
 
+import jakarta.inject.Provider;
+
 public class EclipseResourceProvider extends AbstractOriginatingFileProvider {
     // @formatter:off
     public static final Collection<Capability> capabilities = ImList.Immutable.of(
@@ -30,12 +33,20 @@ public class EclipseResourceProvider extends AbstractOriginatingFileProvider {
     );
     // @formatter:on
 
+    private final Provider<SpoofaxPreferences> preferencesProvider;
+
+
+    public EclipseResourceProvider(Provider<SpoofaxPreferences> preferencesProvider) {
+        this.preferencesProvider = preferencesProvider;
+    }
+
+
     @Override public Collection<Capability> getCapabilities() {
         return capabilities;
     }
 
     @Override protected FileSystem doCreateFileSystem(FileName rootName, FileSystemOptions fileSystemOptions)
         throws FileSystemException {
-        return new EclipseResourceFileSystem(rootName, null, fileSystemOptions);
+        return new EclipseResourceFileSystem(rootName, null, fileSystemOptions, preferencesProvider);
     }
 }
@@ -7,6 +7,7 @@ import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemManager;
 import org.apache.commons.vfs2.provider.local.LocalFile;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.IStorage;
 import org.eclipse.core.resources.IWorkspaceRoot;
@@ -32,6 +33,7 @@ public class EclipseResourceService extends ResourceService implements IEclipseR
     private static final ILogger logger = LoggerUtils.logger(EclipseResourceService.class);
 
     private final IWorkspaceRoot root;
+    private final ResourceCache cache;
 
 
     @jakarta.inject.Inject public EclipseResourceService(FileSystemManager fileSystemManager,
@@ -39,6 +41,9 @@ public class EclipseResourceService extends ResourceService implements IEclipseR
         super(fileSystemManager, classLoader);
 
         this.root = ResourcesPlugin.getWorkspace().getRoot();
+        this.cache = new ResourceCache();
+        ResourcesPlugin.getWorkspace().addResourceChangeListener(cache, IResourceChangeEvent.POST_CHANGE
+            | IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE);
     }
 
 
@@ -47,7 +52,7 @@ public class EclipseResourceService extends ResourceService implements IEclipseR
     }
 
     @Override public FileObject resolve(IPath path) {
-        return resolve("eclipse://" + path.toString());
+        return cache.resolve(path, () -> resolve("eclipse://" + path.toString()));
     }
 
     @Override public FileObject resolveWorkspaceRoot() {
@@ -90,7 +95,6 @@ public class EclipseResourceService extends ResourceService implements IEclipseR
     }
 
     @Override public @Nullable ResourceChange resolve(IResourceDelta delta) {
-        final FileObject resource = resolve(delta.getResource());
         final int eclipseKind = delta.getKind();
         final ResourceChangeKind kind;
         // GTODO: handle move/copies better
@@ -112,18 +116,21 @@ public class EclipseResourceService extends ResourceService implements IEclipseR
                 throw new MetaborgRuntimeException(message);
         }
 
+        final FileObject resource = resolve(delta.getResource());
         return new ResourceChange(resource, kind);
     }
 
     @Override public @Nullable IResource unresolve(FileObject resource) {
         if(resource instanceof EclipseResourceFileObject) {
             final EclipseResourceFileObject eclipseResource = (EclipseResourceFileObject) resource;
-            try {
-                return eclipseResource.resource();
-            } catch(Exception e) {
-                logger.error("Could not unresolve resource {} to an Eclipse resource", e, resource);
-                return null;
-            }
+            return cache.unresolve(resource.getName().getPath(), () -> {
+                try {
+                    return eclipseResource.resource();
+                } catch(Exception e) {
+                    logger.error("Could not unresolve resource {} to an Eclipse resource", e, resource);
+                    return null;
+                }
+            });
         }
 
         if(resource instanceof LocalFile) {
@@ -147,6 +154,23 @@ public class EclipseResourceService extends ResourceService implements IEclipseR
         return null;
     }
 
+    /**
+     * @return Cache of resolved and unresolved resources, for inspecting its statistics.
+     */
+    public ResourceCache cache() {
+        return cache;
+    }
+
+    /**
+     * Stops listening for workspace changes and clears the cache of resolved and unresolved resources. Must be called
+     * when the plugin is stopped.
+     */
+    public void dispose() {
+        ResourcesPlugin.getWorkspace().removeResourceChangeListener(cache);
+        cache.clear();
+    }
+
+
     @Override public File localFile(FileObject resource) {
         if(!(resource instanceof EclipseResourceFileObject)) {
             return super.localFile(resource);
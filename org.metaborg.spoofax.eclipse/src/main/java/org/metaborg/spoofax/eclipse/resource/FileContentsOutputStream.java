@@ -0,0 +1,153 @@
+package org.metaborg.spoofax.eclipse.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileInfo;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Output stream that sets the contents of an Eclipse file when closed. Written bytes are kept in memory up to a fixed
+ * budget, after which they are streamed to a temporary file. The contents of the file are only set if they differ from
+ * the existing contents, determined by comparing lengths and content hashes, such that regenerating an identical file
+ * does not produce a resource delta and does not trigger an incremental build.
+ */
+public class FileContentsOutputStream extends OutputStream {
+    private static final ILogger logger = LoggerUtils.logger(FileContentsOutputStream.class);
+
+    private static final int memoryBudget = 1024 * 1024;
+    private static final String hashAlgorithm = "SHA-256";
+
+    private final IFile file;
+    private final MessageDigest digest;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private @Nullable Path spillPath;
+    private @Nullable OutputStream spillStream;
+    private long length = 0;
+    private boolean closed = false;
+
+
+    public FileContentsOutputStream(IFile file) {
+        this.file = file;
+        this.digest = newDigest();
+    }
+
+
+    @Override public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override public void write(byte[] b, int off, int len) throws IOException {
+        if(closed) {
+            throw new IOException("Stream for file " + file + " is closed");
+        }
+        digest.update(b, off, len);
+        length += len;
+        if(spillStream == null && buffer.size() + len > memoryBudget) {
+            // Memory budget exceeded, stream the buffered and all further bytes to a temporary file.
+            spillPath = Files.createTempFile("spoofax-eclipse-", ".tmp");
+            spillStream = Files.newOutputStream(spillPath);
+            buffer.writeTo(spillStream);
+            buffer.reset();
+        }
+        if(spillStream != null) {
+            spillStream.write(b, off, len);
+        } else {
+            buffer.write(b, off, len);
+        }
+    }
+
+    @Override public void flush() throws IOException {
+        if(spillStream != null) {
+            spillStream.flush();
+        }
+    }
+
+    @Override public void close() throws IOException {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if(spillStream != null) {
+                spillStream.close();
+            }
+            if(file.exists() && unchanged()) {
+                logger.trace("Contents of {} did not change, skipping write", file);
+                return;
+            }
+            try(InputStream contents = contents()) {
+                if(!file.exists()) {
+                    file.create(contents, true, null);
+                } else {
+                    file.setContents(contents, true, false, null);
+                }
+            }
+        } catch(CoreException e) {
+            throw new IOException("Could not set file contents for file " + file, e);
+        } finally {
+            if(spillPath != null) {
+                Files.deleteIfExists(spillPath);
+            }
+        }
+    }
+
+
+    private InputStream contents() throws IOException {
+        if(spillPath != null) {
+            return Files.newInputStream(spillPath);
+        }
+        return new ByteArrayInputStream(buffer.toByteArray());
+    }
+
+    /**
+     * @return True if the existing contents of the file have the same length and hash as the written bytes.
+     */
+    private boolean unchanged() throws CoreException, IOException {
+        final URI locationURI = file.getLocationURI();
+        if(locationURI != null) {
+            final IFileInfo info = EFS.getStore(locationURI).fetchInfo();
+            if(info.exists() && info.getLength() != length) {
+                return false;
+            }
+        }
+
+        final MessageDigest existingDigest = newDigest();
+        final byte[] chunk = new byte[8192];
+        long existingLength = 0;
+        try(InputStream existing = new DigestInputStream(file.getContents(true), existingDigest)) {
+            int read;
+            while((read = existing.read(chunk)) != -1) {
+                existingLength += read;
+                if(existingLength > length) {
+                    return false;
+                }
+            }
+        }
+        return existingLength == length && Arrays.equals(existingDigest.digest(), digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(hashAlgorithm);
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(hashAlgorithm + " is not supported", e);
+        }
+    }
+}
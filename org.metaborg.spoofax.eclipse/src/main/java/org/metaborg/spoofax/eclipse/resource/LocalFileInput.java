@@ -0,0 +1,109 @@
+package org.metaborg.spoofax.eclipse.resource;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Reads workspace files that are stored in the local file system directly with NIO, bypassing the stream layers of the
+ * workspace and EFS. Small files are read into memory with a single channel read, large files are streamed from the
+ * file system.
+ * Linked and virtual resources, files with a non-local location, and files that are out of sync with the file system
+ * are not read directly, such that callers fall back to {@link IFile#getContents()}.
+ */
+class LocalFileInput {
+    private static final ILogger logger = LoggerUtils.logger(LocalFileInput.class);
+
+    private static final long heapThreshold = 1024 * 1024;
+
+
+    /**
+     * @return Input stream with the contents of given file, or null if the file cannot be read directly.
+     */
+    static @Nullable InputStream open(IFile file) {
+        if(file.isLinked(IResource.CHECK_ANCESTORS) || file.isVirtual()) {
+            return null;
+        }
+        final URI locationURI = file.getLocationURI();
+        if(locationURI == null || !EFS.SCHEME_FILE.equals(locationURI.getScheme())) {
+            return null;
+        }
+
+        try {
+            final Path path = Paths.get(locationURI);
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            // Same check as the workspace performs, using the attributes that are needed anyway.
+            if(!attributes.isRegularFile() || attributes.lastModifiedTime().toMillis() != file.getLocalTimeStamp()) {
+                return null;
+            }
+            final long size = attributes.size();
+            if(size >= heapThreshold) {
+                // Do not memory-map large files: mappings are only released on garbage collection, which keeps files
+                // locked on some platforms and holds address space for files that are read once.
+                return new BufferedInputStream(Files.newInputStream(path));
+            }
+            try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+                while(buffer.hasRemaining() && channel.read(buffer) != -1) {
+                }
+                buffer.flip();
+                return new ByteBufferInputStream(buffer);
+            }
+        } catch(IOException | RuntimeException e) {
+            logger.trace("Cannot read {} directly, falling back to workspace", e, file);
+            return null;
+        }
+    }
+
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+
+        @Override public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override public int read(byte[] b, int off, int len) {
+            if(len == 0) {
+                return 0;
+            }
+            if(!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override public long skip(long n) {
+            final int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.metaborg.spoofax.eclipse.resource;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.commons.vfs2.FileObject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.metaborg.spoofax.eclipse.util.Nullable;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Bounded, thread-safe, two-way cache between workspace paths and VFS file objects, used by
+ * {@link EclipseResourceService} to speed up resolving and unresolving resources. Entries are invalidated when
+ * resources are added, removed, moved, opened, or closed, as reported by resource change events.
+ */
+public class ResourceCache implements IResourceChangeListener {
+    private static final ILogger logger = LoggerUtils.logger(ResourceCache.class);
+
+    private static final int maxSize = 65536;
+
+    private static final int structuralChanges = IResourceDelta.OPEN | IResourceDelta.TYPE | IResourceDelta.REPLACED
+        | IResourceDelta.MOVED_FROM | IResourceDelta.MOVED_TO;
+
+    private final ConcurrentMap<IPath, FileObject> files = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, IResource> resources = new ConcurrentHashMap<>();
+    private final AtomicLong epoch = new AtomicLong();
+
+    private final Stats resolveStats = new Stats();
+    private final Stats unresolveStats = new Stats();
+
+
+    /**
+     * Gets the cached file object for given workspace path, or computes and caches it.
+     */
+    public FileObject resolve(IPath path, Supplier<FileObject> resolver) {
+        final FileObject cached = files.get(path);
+        if(cached != null) {
+            resolveStats.hit();
+            return cached;
+        }
+        resolveStats.miss();
+        final long startEpoch = epoch.get();
+        final FileObject file = resolver.get();
+        put(files, path, file, startEpoch);
+        return file;
+    }
+
+    /**
+     * Gets the cached Eclipse resource for given workspace path, or computes and caches it.
+     */
+    public @Nullable IResource unresolve(String path, Supplier<IResource> unresolver) {
+        final IResource cached = resources.get(path);
+        if(cached != null) {
+            unresolveStats.hit();
+            return cached;
+        }
+        unresolveStats.miss();
+        final long startEpoch = epoch.get();
+        final IResource resource = unresolver.get();
+        if(resource != null) {
+            put(resources, path, resource, startEpoch);
+        }
+        return resource;
+    }
+
+    /**
+     * Removes all cached entries.
+     */
+    public void clear() {
+        epoch.incrementAndGet();
+        files.clear();
+        resources.clear();
+    }
+
+
+    /**
+     * @return Statistics of resolving paths to file objects.
+     */
+    public Stats resolveStats() {
+        return resolveStats;
+    }
+
+    /**
+     * @return Statistics of unresolving file objects to Eclipse resources.
+     */
+    public Stats unresolveStats() {
+        return unresolveStats;
+    }
+
+
+    @Override public void resourceChanged(IResourceChangeEvent event) {
+        switch(event.getType()) {
+            case IResourceChangeEvent.PRE_CLOSE:
+            case IResourceChangeEvent.PRE_DELETE:
+                final IResource resource = event.getResource();
+                if(resource != null) {
+                    invalidate(resource.getFullPath(), true);
+                }
+                break;
+            case IResourceChangeEvent.POST_CHANGE:
+                final IResourceDelta delta = event.getDelta();
+                if(delta == null) {
+                    break;
+                }
+                try {
+                    delta.accept(new IResourceDeltaVisitor() {
+                        @Override public boolean visit(IResourceDelta child) {
+                            final int kind = child.getKind();
+                            final boolean structural = (child.getFlags() & structuralChanges) != 0;
+                            if(kind == IResourceDelta.ADDED || kind == IResourceDelta.REMOVED || structural) {
+                                // Children of closed or replaced resources are not part of the delta.
+                                invalidate(child.getFullPath(), structural);
+                            }
+                            return true;
+                        }
+                    });
+                } catch(CoreException e) {
+                    logger.error("Cannot process resource delta, clearing resource cache", e);
+                    clear();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+
+    private void invalidate(IPath path, boolean descendants) {
+        epoch.incrementAndGet();
+        files.remove(path);
+        resources.remove(path.toString());
+        if(!descendants) {
+            return;
+        }
+        for(Iterator<IPath> iter = files.keySet().iterator(); iter.hasNext();) {
+            if(path.isPrefixOf(iter.next())) {
+                iter.remove();
+            }
+        }
+        final String prefix = path.addTrailingSeparator().toString();
+        for(Iterator<String> iter = resources.keySet().iterator(); iter.hasNext();) {
+            if(iter.next().startsWith(prefix)) {
+                iter.remove();
+            }
+        }
+    }
+
+    private <K, V> void put(ConcurrentMap<K, V> map, K key, V value, long startEpoch) {
+        if(map.size() >= maxSize) {
+            // Evict arbitrary entries to stay within bounds, cheaper than tracking recency on every hit.
+            final Iterator<K> iter = map.keySet().iterator();
+            for(int i = 0; i < maxSize / 4 && iter.hasNext(); ++i) {
+                iter.next();
+                iter.remove();
+            }
+        }
+        map.put(key, value);
+        if(epoch.get() != startEpoch) {
+            // Invalidated while computing the value, which may be outdated.
+            map.remove(key, value);
+        }
+    }
+
+
+    @Override public String toString() {
+        return "ResourceCache[files = " + files.size() + ", resources = " + resources.size() + ", resolve "
+            + resolveStats + ", unresolve " + unresolveStats + "]";
+    }
+
+
+    /**
+     * Hit and miss statistics of a cache direction.
+     */
+    public static class Stats {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+
+        void hit() {
+            hits.incrementAndGet();
+        }
+
+        void miss() {
+            misses.incrementAndGet();
+        }
+
+
+        public long hits() {
+            return hits.get();
+        }
+
+        public long misses() {
+            return misses.get();
+        }
+
+        /**
+         * @return Fraction of requests that were served from the cache, between 0 and 1.
+         */
+        public double hitRate() {
+            final long hitCount = hits.get();
+            final long total = hitCount + misses.get();
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+
+
+        @Override public String toString() {
+            return String.format("[hits = %d, misses = %d, hit rate = %.2f]", hits(), misses(), hitRate());
+        }
+    }
+}
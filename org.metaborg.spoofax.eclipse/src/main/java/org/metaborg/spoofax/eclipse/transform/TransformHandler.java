@@ -31,6 +31,7 @@ import org.metaborg.spoofax.core.unit.ISpoofaxUnitService;
 import org.metaborg.spoofax.eclipse.SpoofaxPlugin;
 import org.metaborg.spoofax.eclipse.editor.IEclipseEditor;
 import org.metaborg.spoofax.eclipse.editor.IEclipseEditorRegistry;
+import org.metaborg.spoofax.eclipse.job.CancellationMetrics;
 import org.metaborg.spoofax.eclipse.resource.IEclipseResourceService;
 import org.metaborg.spoofax.eclipse.util.Nullable;
 import org.metaborg.spoofax.eclipse.util.RegionUtils;
@@ -58,6 +59,7 @@ public class TransformHandler extends AbstractHandler {
     private final ISpoofaxAnalysisService analysisService;
     private final ISpoofaxAnalysisResultRequester analysisResultRequester;
     private final IEclipseEditorRegistry<?> editorRegistry;
+    private final CancellationMetrics cancellationMetrics;
 
 
     public TransformHandler() {
@@ -76,6 +78,7 @@ public class TransformHandler extends AbstractHandler {
         this.analysisResultRequester = injector.getInstance(ISpoofaxAnalysisResultRequester.class);
         this.editorRegistry =
             injector.getInstance(Key.get(new TypeLiteral<IEclipseEditorRegistry<IStrategoTerm>>() {}));
+        this.cancellationMetrics = injector.getInstance(CancellationMetrics.class);
     }
 
 
@@ -131,7 +134,7 @@ public class TransformHandler extends AbstractHandler {
         }
 
         final Job transformJob = new TransformJob(contextService, unitService, transformService, parseResultRequester,
-            analysisService, analysisResultRequester, language, resources, goal);
+            analysisService, analysisResultRequester, cancellationMetrics, language, resources, goal);
         transformJob.schedule();
 
         return null;
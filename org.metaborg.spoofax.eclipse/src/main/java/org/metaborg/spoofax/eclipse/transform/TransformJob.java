@@ -27,7 +27,9 @@ import org.metaborg.spoofax.core.unit.ISpoofaxAnalyzeUnit;
 import org.metaborg.spoofax.core.unit.ISpoofaxInputUnit;
 import org.metaborg.spoofax.core.unit.ISpoofaxParseUnit;
 import org.metaborg.spoofax.core.unit.ISpoofaxUnitService;
-import org.metaborg.spoofax.eclipse.job.ThreadKillerJob;
+import org.metaborg.spoofax.eclipse.job.CancellationMetrics;
+import org.metaborg.spoofax.eclipse.job.CancellationToken;
+import org.metaborg.spoofax.eclipse.job.ThreadInterrupterJob;
 import org.metaborg.spoofax.eclipse.util.Nullable;
 import org.metaborg.spoofax.eclipse.util.StatusUtils;
 import org.metaborg.util.Strings;
@@ -38,7 +40,7 @@ import org.metaborg.util.log.LoggerUtils;
 public class TransformJob extends Job {
     private static final ILogger logger = LoggerUtils.logger(TransformJob.class);
     private static final long interruptTimeMillis = 3000;
-    private static final long killTimeMillis = 5000;
+    private static final long warnTimeMillis = 5000;
 
     private final IContextService contextService;
     private final ISpoofaxUnitService unitService;
@@ -51,13 +53,17 @@ public class TransformJob extends Job {
     private final Collection<TransformResource> resources;
     private final ITransformGoal goal;
 
-    private ThreadKillerJob threadKiller;
+    private final CancellationMetrics cancellationMetrics;
+    private final CancellationToken cancellationToken = new CancellationToken();
+
+    private ThreadInterrupterJob threadInterrupter;
 
 
     public TransformJob(IContextService contextService, ISpoofaxUnitService unitService,
         ISpoofaxTransformService transformService, ISpoofaxParseResultRequester parseResultProcessor,
         ISpoofaxAnalysisService analysisService, ISpoofaxAnalysisResultRequester analysisResultProcessor,
-        ILanguageImpl langImpl, Collection<TransformResource> resources, ITransformGoal goal) {
+        CancellationMetrics cancellationMetrics, ILanguageImpl langImpl, Collection<TransformResource> resources,
+        ITransformGoal goal) {
         super("Transforming resources");
 
         this.contextService = contextService;
@@ -66,6 +72,7 @@ public class TransformJob extends Job {
         this.parseResultRequester = parseResultProcessor;
         this.analysisService = analysisService;
         this.analysisResultRequester = analysisResultProcessor;
+        this.cancellationMetrics = cancellationMetrics;
 
         this.langImpl = langImpl;
         this.resources = resources;
@@ -77,31 +84,43 @@ public class TransformJob extends Job {
     @Override protected IStatus run(IProgressMonitor monitor) {
         try {
             return transformAll(monitor);
-        } catch(InterruptedException | CancellationException | ThreadDeath e) {
-            return StatusUtils.cancel();
-        } catch(OperationCanceledException e) {
+        } catch(InterruptedException | CancellationException | OperationCanceledException e) {
             return StatusUtils.cancel();
+        } catch(RuntimeException e) {
+            // Blocking waits for parse or analysis results throw a wrapped InterruptedException when interrupted.
+            if(cancellationToken.cancelled()) {
+                return StatusUtils.cancel();
+            }
+            throw e;
         } finally {
-            if(threadKiller != null) {
-                threadKiller.cancel();
+            final long cancellationMillis = cancellationToken.finish();
+            if(threadInterrupter != null) {
+                threadInterrupter.cancel();
+            }
+            if(cancellationMillis >= 0) {
+                cancellationMetrics.record("transform", cancellationMillis);
             }
+            // Clear interrupted flag, to prevent a late interrupt from leaking into the next job on this thread.
+            Thread.interrupted();
             monitor.done();
         }
     }
 
     @Override protected void canceling() {
+        cancellationToken.cancel();
+
         final Thread thread = getThread();
         if(thread == null) {
             return;
         }
 
-        logger.debug("Cancelling transform job for {}, interrupting in {}ms, killing in {}ms",
-            Strings.tsJoin(resources, ", "), interruptTimeMillis, interruptTimeMillis + killTimeMillis);
-        threadKiller = new ThreadKillerJob(thread, killTimeMillis);
-        threadKiller.schedule(interruptTimeMillis);
+        logger.debug("Cancelling transform job for {}, interrupting in {}ms if cancellation is not honoured",
+            Strings.tsJoin(resources, ", "), interruptTimeMillis);
+        threadInterrupter = new ThreadInterrupterJob(thread, cancellationToken, warnTimeMillis);
+        threadInterrupter.schedule(interruptTimeMillis);
     }
 
-    private IStatus transformAll(IProgressMonitor progressMonitor) throws InterruptedException, ThreadDeath {
+    private IStatus transformAll(IProgressMonitor progressMonitor) throws InterruptedException {
         final SubMonitor monitor = SubMonitor.convert(progressMonitor);
 
         if(monitor.isCanceled())
@@ -109,7 +128,7 @@ public class TransformJob extends Job {
 
         final SubMonitor loopMonitor = monitor.split(1).setWorkRemaining(resources.size());
         for(TransformResource transformResource : resources) {
-            if(loopMonitor.isCanceled())
+            if(loopMonitor.isCanceled() || cancellationToken.cancelled())
                 return StatusUtils.cancel();
 
             final FileObject source = transformResource.source;
@@ -128,7 +147,7 @@ public class TransformJob extends Job {
     }
 
     private void transform(ISpoofaxInputUnit input, IProject project, @Nullable ISourceRegion selection,
-        SubMonitor monitor) throws ContextException, TransformException {
+        SubMonitor monitor) throws ContextException, TransformException, InterruptedException {
         final FileObject source = input.source();
         final IContext context = contextService.get(source, project, langImpl);
         final ITransformConfig config = new TransformConfig(selection);
@@ -137,9 +156,11 @@ public class TransformJob extends Job {
             monitor.setTaskName("Waiting for analysis result");
             final ISpoofaxAnalyzeUnit result = analysisResultRequester.request(input, context).blockingSingle();
             monitor.worked(1);
+            cancellationToken.throwIfCancelled();
             monitor.setTaskName("Waiting for context read lock");
             try(IClosableLock lock = context.read()) {
                 monitor.worked(1);
+                cancellationToken.throwIfCancelled();
                 monitor.setTaskName("Transforming " + source);
                 transformService.transform(result, context, goal, config);
                 monitor.worked(1);
@@ -149,6 +170,7 @@ public class TransformJob extends Job {
             monitor.setTaskName("Waiting for parse result");
             final ISpoofaxParseUnit result = parseResultRequester.request(input).blockingSingle();
             monitor.worked(1);
+            cancellationToken.throwIfCancelled();
             monitor.setTaskName("Transforming " + source);
             transformService.transform(result, context, goal, config);
             monitor.worked(1);
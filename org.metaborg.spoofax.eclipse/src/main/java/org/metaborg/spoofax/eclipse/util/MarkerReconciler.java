@@ -0,0 +1,250 @@
+package org.metaborg.spoofax.eclipse.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.metaborg.core.messages.IMessage;
+import org.metaborg.core.messages.MessageSeverity;
+import org.metaborg.core.messages.MessageType;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Replaces markers of resources with markers for new messages, by only deleting, creating, or updating the markers that
+ * differ. Has the same effect as clearing markers with {@link MarkerUtils} and creating a marker for each message, but
+ * leaves unchanged markers alone, which prevents resource delta traffic and churn in the problems view.
+ *
+ * Record clears and messages in the order in which markers would be cleared and created, and then call
+ * {@link #reconcile()}, preferably inside an {@link org.eclipse.core.resources.IWorkspaceRunnable}.
+ */
+public class MarkerReconciler {
+    private static final ILogger logger = LoggerUtils.logger(MarkerReconciler.class);
+
+    private static final String[] keyAttributes =
+        { IMarker.CHAR_START, IMarker.CHAR_END, IMarker.LINE_NUMBER, IMarker.MESSAGE };
+
+    private final Map<IResource, Changes> changes = new LinkedHashMap<>();
+
+
+    /**
+     * Clears all Spoofax markers from given resource.
+     */
+    public void clearAll(IResource resource) {
+        clear(resource, MarkerUtils.id, true);
+    }
+
+    /**
+     * Clears all internal Spoofax markers from given resource.
+     */
+    public void clearInternal(IResource resource) {
+        clear(resource, MarkerUtils.type(MessageType.INTERNAL, MessageSeverity.ERROR), false);
+        clear(resource, MarkerUtils.type(MessageType.INTERNAL, MessageSeverity.WARNING), false);
+        clear(resource, MarkerUtils.type(MessageType.INTERNAL, MessageSeverity.NOTE), false);
+    }
+
+    /**
+     * Clears all parse markers from given resource.
+     */
+    public void clearParser(IResource resource) {
+        clear(resource, MarkerUtils.parserId, true);
+    }
+
+    /**
+     * Clears all analysis markers from given resource.
+     */
+    public void clearAnalysis(IResource resource) {
+        clear(resource, MarkerUtils.analysisId, true);
+    }
+
+    /**
+     * Adds a marker for given message to given resource.
+     */
+    public void add(IResource resource, IMessage message) {
+        final String type = MarkerUtils.type(message.type(), message.severity());
+        changes(resource).messages.add(new Desired(type, MarkerUtils.attributes(message)));
+    }
+
+
+    /**
+     * Deletes, creates, and updates markers such that all recorded clears and messages are reflected in the workspace,
+     * and forgets all recorded clears and messages.
+     *
+     * @throws CoreException
+     *             When finding, deleting, creating, or updating markers fails.
+     */
+    public void reconcile() throws CoreException {
+        int created = 0;
+        int updated = 0;
+        int deleted = 0;
+        int kept = 0;
+        for(Map.Entry<IResource, Changes> entry : changes.entrySet()) {
+            final IResource resource = entry.getKey();
+            final Changes resourceChanges = entry.getValue();
+            if(!resource.exists()) {
+                continue;
+            }
+
+            // Index existing markers that would have been cleared by their type, region, and message.
+            final Map<Key, List<IMarker>> existing = new HashMap<>();
+            final Set<IMarker> existingMarkers = new LinkedHashSet<>();
+            for(Scope scope : resourceChanges.scopes) {
+                for(IMarker marker : resource.findMarkers(scope.type, scope.includeSubtypes, IResource.DEPTH_ZERO)) {
+                    if(existingMarkers.add(marker)) {
+                        final Key key = new Key(marker.getType(), marker.getAttributes(keyAttributes));
+                        existing.computeIfAbsent(key, k -> new ArrayList<>(1)).add(marker);
+                    }
+                }
+            }
+
+            // Keep existing markers that are identical to a new marker.
+            final Collection<Desired> unmatched = new ArrayList<>();
+            for(Desired desired : resourceChanges.messages) {
+                final IMarker marker = take(existing, desired.key());
+                if(marker != null) {
+                    existingMarkers.remove(marker);
+                    ++kept;
+                } else {
+                    unmatched.add(desired);
+                }
+            }
+
+            // Move existing markers with the same type and message, otherwise create new markers.
+            final Map<Key, List<IMarker>> movable = new HashMap<>();
+            for(IMarker marker : existingMarkers) {
+                final Key key = new Key(marker.getType(), null, null, marker.getAttribute(IMarker.MESSAGE));
+                movable.computeIfAbsent(key, k -> new ArrayList<>(1)).add(marker);
+            }
+            for(Desired desired : unmatched) {
+                final IMarker marker = take(movable, new Key(desired.type, null, null, desired.message()));
+                if(marker != null) {
+                    marker.setAttributes(desired.attributes);
+                    existingMarkers.remove(marker);
+                    ++updated;
+                } else {
+                    resource.createMarker(desired.type, desired.attributes);
+                    ++created;
+                }
+            }
+
+            // Delete remaining existing markers, which have no corresponding new marker.
+            if(!existingMarkers.isEmpty()) {
+                resource.getWorkspace().deleteMarkers(existingMarkers.toArray(new IMarker[existingMarkers.size()]));
+                deleted += existingMarkers.size();
+            }
+        }
+        changes.clear();
+        logger.trace("Reconciled markers: {} created, {} updated, {} deleted, {} kept", created, updated, deleted, kept);
+    }
+
+
+    private void clear(IResource resource, String type, boolean includeSubtypes) {
+        final Changes resourceChanges = changes(resource);
+        resourceChanges.scopes.add(new Scope(type, includeSubtypes));
+        // Markers added before clearing would have been cleared as well.
+        for(Iterator<Desired> iter = resourceChanges.messages.iterator(); iter.hasNext();) {
+            final String desiredType = iter.next().type;
+            if(includeSubtypes ? desiredType.startsWith(type) : desiredType.equals(type)) {
+                iter.remove();
+            }
+        }
+    }
+
+    private Changes changes(IResource resource) {
+        return changes.computeIfAbsent(resource, r -> new Changes());
+    }
+
+    private static @Nullable IMarker take(Map<Key, List<IMarker>> markers, Key key) {
+        final List<IMarker> candidates = markers.get(key);
+        if(candidates == null || candidates.isEmpty()) {
+            return null;
+        }
+        return candidates.remove(candidates.size() - 1);
+    }
+
+
+    private static class Changes {
+        final Set<Scope> scopes = new LinkedHashSet<>();
+        final List<Desired> messages = new ArrayList<>();
+    }
+
+    private static class Scope {
+        final String type;
+        final boolean includeSubtypes;
+
+
+        Scope(String type, boolean includeSubtypes) {
+            this.type = type;
+            this.includeSubtypes = includeSubtypes;
+        }
+
+
+        @Override public boolean equals(Object obj) {
+            if(!(obj instanceof Scope)) {
+                return false;
+            }
+            final Scope other = (Scope) obj;
+            return type.equals(other.type) && includeSubtypes == other.includeSubtypes;
+        }
+
+        @Override public int hashCode() {
+            return Objects.hash(type, includeSubtypes);
+        }
+    }
+
+    private static class Desired {
+        final String type;
+        final Map<String, Object> attributes;
+
+
+        Desired(String type, Map<String, Object> attributes) {
+            this.type = type;
+            this.attributes = attributes;
+        }
+
+
+        Object message() {
+            return attributes.get(IMarker.MESSAGE);
+        }
+
+        Key key() {
+            return new Key(type, attributes.get(IMarker.CHAR_START), attributes.get(IMarker.CHAR_END),
+                attributes.get(IMarker.LINE_NUMBER), message());
+        }
+    }
+
+    private static class Key {
+        final String type;
+        final Object[] values;
+
+
+        Key(String type, Object... values) {
+            this.type = type;
+            this.values = values;
+        }
+
+
+        @Override public boolean equals(Object obj) {
+            if(!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return type.equals(other.type) && Arrays.equals(values, other.values);
+        }
+
+        @Override public int hashCode() {
+            return 31 * type.hashCode() + Arrays.hashCode(values);
+        }
+    }
+}
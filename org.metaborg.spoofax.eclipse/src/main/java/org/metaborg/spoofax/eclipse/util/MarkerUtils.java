@@ -1,5 +1,8 @@
 package org.metaborg.spoofax.eclipse.util;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
@@ -13,9 +16,9 @@ import org.metaborg.spoofax.eclipse.SpoofaxPlugin;
  * Utility functions for creating and removing {@link IMarker} instances.
  */
 public final class MarkerUtils {
-    private static final String id = SpoofaxPlugin.id + ".marker";
-    private static final String parserId = id + ".parser";
-    private static final String analysisId = id + ".analysis";
+    static final String id = SpoofaxPlugin.id + ".marker";
+    static final String parserId = id + ".parser";
+    static final String analysisId = id + ".analysis";
     private static final String transformationId = id + ".transformation";
     private static final String infoPostfix = ".info";
     private static final String warningPostfix = ".warning";
@@ -35,19 +38,30 @@ public final class MarkerUtils {
      */
     public static IMarker createMarker(IResource resource, IMessage message) throws CoreException {
         final String type = type(message.type(), message.severity());
-        final IMarker marker = resource.createMarker(type);
+        return resource.createMarker(type, attributes(message));
+    }
+
+    /**
+     * Creates the marker attributes for given message.
+     * 
+     * @param message
+     *            Message to create attributes for.
+     * @return Marker attributes.
+     */
+    public static Map<String, Object> attributes(IMessage message) {
+        final Map<String, Object> attributes = new HashMap<>();
         final ISourceRegion region = message.region();
         if(region != null) {
-            marker.setAttribute(IMarker.CHAR_START, region.startOffset());
-            marker.setAttribute(IMarker.CHAR_END, region.endOffset() + 1);
-            marker.setAttribute(IMarker.LINE_NUMBER, region.startRow() + 1);
+            attributes.put(IMarker.CHAR_START, region.startOffset());
+            attributes.put(IMarker.CHAR_END, region.endOffset() + 1);
+            attributes.put(IMarker.LINE_NUMBER, region.startRow() + 1);
         } else {
-            marker.setAttribute(IMarker.LINE_NUMBER, 1);
+            attributes.put(IMarker.LINE_NUMBER, 1);
         }
-        marker.setAttribute(IMarker.MESSAGE, message.message());
-        marker.setAttribute(IMarker.SEVERITY, severity(message.severity()));
-        marker.setAttribute(IMarker.PRIORITY, IMarker.PRIORITY_NORMAL);
-        return marker;
+        attributes.put(IMarker.MESSAGE, message.message());
+        attributes.put(IMarker.SEVERITY, severity(message.severity()));
+        attributes.put(IMarker.PRIORITY, IMarker.PRIORITY_NORMAL);
+        return attributes;
     }
 
 
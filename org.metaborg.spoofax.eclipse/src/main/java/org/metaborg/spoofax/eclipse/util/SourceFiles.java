@@ -0,0 +1,258 @@
+package org.metaborg.spoofax.eclipse.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelectInfo;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.FileSystemException;
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.metaborg.core.language.ILanguageComponent;
+import org.metaborg.core.language.ILanguageService;
+import org.metaborg.core.language.ResourceExtensionFacet;
+import org.metaborg.core.resource.ResourceChange;
+import org.metaborg.spoofax.eclipse.resource.IEclipseResourceService;
+import org.metaborg.util.iterators.Iterables2;
+
+/**
+ * Finds the source files that full builds, incremental builds, and language loading process, in workspace locations and
+ * resource deltas.
+ */
+public class SourceFiles {
+    /**
+     * Extension of parse table files, which are processed as dialects.
+     */
+    private static final String dialectExtension = "tbl";
+
+    /**
+     * Resource delta flags of changes that affect the contents of a file.
+     */
+    private static final int contentChanges =
+        IResourceDelta.CONTENT | IResourceDelta.REPLACED | IResourceDelta.ENCODING | IResourceDelta.TYPE;
+
+    /**
+     * Returns the extensions of files that are of interest to full builds and language loading: extensions of all
+     * loaded language components, and the extension of dialect parse tables.
+     * 
+     * @param languageService
+     *            Language service to get loaded language components from.
+     * @return Set of extensions, without leading dot.
+     */
+    public static Set<String> sourceExtensions(ILanguageService languageService) {
+        final Set<String> extensions = new HashSet<>();
+        for(ILanguageComponent component : languageService.getAllComponents()) {
+            for(ResourceExtensionFacet facet : component.facets(ResourceExtensionFacet.class)) {
+                Iterables2.addAll(extensions, facet.extensions());
+            }
+        }
+        extensions.add(dialectExtension);
+        return extensions;
+    }
+
+    /**
+     * Finds all files with one of given extensions at given location, skipping directories ignored by given selector.
+     * Locations in the workspace are enumerated with a resource proxy visitor, which prunes ignored directories before
+     * descending into them and only creates file objects for directories that are traversed and for matching files.
+     * Other locations are enumerated through VFS.
+     * 
+     * @param resourceService
+     *            Resource service used to convert resources.
+     * @param location
+     *            Location to find files in.
+     * @param ignores
+     *            Selector that determines which directories are traversed and which files are included, such as
+     *            {@link org.metaborg.spoofax.core.resource.SpoofaxIgnoresSelector}.
+     * @param extensions
+     *            Extensions of files to find, without leading dot.
+     * @return Collection of found files.
+     * @throws FileSystemException
+     *             When an error occurs while finding files.
+     */
+    public static Collection<FileObject> find(IEclipseResourceService resourceService, FileObject location,
+        FileSelector ignores, Set<String> extensions) throws FileSystemException {
+        final IResource resource = resourceService.unresolve(location);
+        if(!(resource instanceof IContainer) || !resource.isAccessible()) {
+            return Arrays.asList(location.findFiles(new ExtensionSelector(ignores, extensions)));
+        }
+
+        final Collection<FileObject> files = new ArrayList<>();
+        final int baseSegments = resource.getFullPath().segmentCount();
+        try {
+            resource.accept(new IResourceProxyVisitor() {
+                @Override public boolean visit(IResourceProxy proxy) throws CoreException {
+                    final IPath path = proxy.requestFullPath();
+                    final int depth = path.segmentCount() - baseSegments;
+                    try {
+                        if(proxy.getType() == IResource.FILE) {
+                            if(extensions.contains(extension(proxy.getName()))) {
+                                final FileObject file = resourceService.resolve(path);
+                                if(ignores.includeFile(new SelectInfo(location, file, depth))) {
+                                    files.add(file);
+                                }
+                            }
+                            return false;
+                        }
+                        if(depth == 0) {
+                            return true;
+                        }
+                        final FileObject directory = resourceService.resolve(path);
+                        return ignores.traverseDescendents(new SelectInfo(location, directory, depth));
+                    } catch(Exception e) {
+                        throw new CoreException(StatusUtils.error("Cannot select " + path, e));
+                    }
+                }
+            }, IResource.NONE);
+        } catch(CoreException e) {
+            throw new FileSystemException("Cannot find files in " + location, e);
+        }
+        return files;
+    }
+
+
+    /**
+     * Converts the changes to files with one of given extensions in given resource delta into resource changes,
+     * skipping files in directories ignored by given selector. Changes that do not affect the contents of files, such
+     * as marker or synchronization info changes, and changes to folders are skipped. Changes are filtered on their
+     * delta before resolving file objects, such that only relevant files and their ancestor directories are resolved.
+     *
+     * @param resourceService
+     *            Resource service used to convert resources.
+     * @param delta
+     *            Resource delta of a container, typically a project.
+     * @param ignores
+     *            Selector that determines which directories are traversed and which files are included, such as
+     *            {@link org.metaborg.spoofax.core.resource.SpoofaxIgnoresSelector}.
+     * @param extensions
+     *            Extensions of files to find changes for, without leading dot.
+     * @return Collection of resource changes.
+     * @throws CoreException
+     *             When visiting the resource delta fails.
+     * @throws FileSystemException
+     *             When the ignore selector fails.
+     */
+    public static Collection<ResourceChange> changes(IEclipseResourceService resourceService, IResourceDelta delta,
+        FileSelector ignores, Set<String> extensions) throws CoreException, FileSystemException {
+        final Collection<IResourceDelta> candidates = new ArrayList<>();
+        delta.accept(new IResourceDeltaVisitor() {
+            @Override public boolean visit(IResourceDelta child) {
+                if(child.getResource().getType() != IResource.FILE) {
+                    return true;
+                }
+                final boolean contentChanged = child.getKind() != IResourceDelta.CHANGED
+                    || (child.getFlags() & contentChanges) != 0;
+                if(contentChanged && extensions.contains(extension(child.getResource().getName()))) {
+                    candidates.add(child);
+                }
+                return false;
+            }
+        });
+        if(candidates.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final FileObject base = resourceService.resolve(delta.getResource());
+        final int baseSegments = delta.getFullPath().segmentCount();
+        final Map<IPath, Boolean> traversable = new HashMap<>();
+        final Collection<ResourceChange> changes = new ArrayList<>(candidates.size());
+        try {
+            for(IResourceDelta candidate : candidates) {
+                final IPath path = candidate.getFullPath();
+                if(!traversable(resourceService, ignores, base, baseSegments, path.removeLastSegments(1),
+                    traversable)) {
+                    continue;
+                }
+                final ResourceChange change = resourceService.resolve(candidate);
+                if(change != null && ignores
+                    .includeFile(new SelectInfo(base, change.resource, path.segmentCount() - baseSegments))) {
+                    changes.add(change);
+                }
+            }
+        } catch(Exception e) {
+            throw new FileSystemException("Cannot select changes in " + base, e);
+        }
+        return changes;
+    }
+
+
+    private static boolean traversable(IEclipseResourceService resourceService, FileSelector ignores, FileObject base,
+        int baseSegments, IPath directory, Map<IPath, Boolean> traversable) throws Exception {
+        final int depth = directory.segmentCount() - baseSegments;
+        if(depth <= 0) {
+            return true;
+        }
+        final Boolean cached = traversable.get(directory);
+        if(cached != null) {
+            return cached;
+        }
+        final boolean result =
+            traversable(resourceService, ignores, base, baseSegments, directory.removeLastSegments(1), traversable)
+                && ignores.traverseDescendents(new SelectInfo(base, resourceService.resolve(directory), depth));
+        traversable.put(directory, result);
+        return result;
+    }
+
+    private static String extension(String name) {
+        final int dot = name.lastIndexOf('.');
+        return dot == -1 ? "" : name.substring(dot + 1);
+    }
+
+    private static class SelectInfo implements FileSelectInfo {
+        private final FileObject baseFolder;
+        private final FileObject file;
+        private final int depth;
+
+
+        SelectInfo(FileObject baseFolder, FileObject file, int depth) {
+            this.baseFolder = baseFolder;
+            this.file = file;
+            this.depth = depth;
+        }
+
+
+        @Override public FileObject getBaseFolder() {
+            return baseFolder;
+        }
+
+        @Override public FileObject getFile() {
+            return file;
+        }
+
+        @Override public int getDepth() {
+            return depth;
+        }
+    }
+
+    private static class ExtensionSelector implements FileSelector {
+        private final FileSelector ignores;
+        private final Set<String> extensions;
+
+
+        ExtensionSelector(FileSelector ignores, Set<String> extensions) {
+            this.ignores = ignores;
+            this.extensions = extensions;
+        }
+
+
+        @Override public boolean includeFile(FileSelectInfo fileInfo) throws Exception {
+            return extensions.contains(fileInfo.getFile().getName().getExtension()) && ignores.includeFile(fileInfo);
+        }
+
+        @Override public boolean traverseDescendents(FileSelectInfo fileInfo) throws Exception {
+            return ignores.traverseDescendents(fileInfo);
+        }
+    }
+}